@@ -0,0 +1,160 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.DCTerms;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import oeg.licensius.GetLicense;
+import oeg.vocablite.Configuration;
+import oeg.vocablite.FormatDetector;
+import oeg.vocablite.Vocabulary;
+
+/**
+ * Inputs of the benchmarks: the repoTest folder and generated vocabularies.
+ * The repoTest folder can be changed with -Dvocablite.repoTest=path
+ * Generated inputs use a fixed seed, so every run measures the same data.
+ * @author dgarijo
+ */
+public class BenchmarkFiles {
+    public static final long seed = 42;
+    public static final String license = "http://creativecommons.org/licenses/by/4.0/";
+    private static final String[] languages = {"en", "es", "fr", "de", "it", "pt", "en-GB", "zh-Hant"};
+
+    public static File repoTest(){
+        File f = new File(System.getProperty("vocablite.repoTest", "../repoTest"));
+        if(!f.isDirectory()){
+            throw new IllegalStateException("repoTest folder not found: "+f.getAbsolutePath()
+                    +" (use -Dvocablite.repoTest=path)");
+        }
+        return f;
+    }
+
+    /**
+     * Runs vocabLite without remote calls: offline mode, with a license 
+     * cache (in a temporary file) that answers for the given vocabularies.
+     * @param uris URIs of the vocabularies that will be processed
+     * @throws IOException 
+     */
+    public static void offline(String... uris) throws IOException{
+        File cache = File.createTempFile("licensius", ".json");
+        cache.delete();
+        cache.deleteOnExit();
+        Configuration.getInstance().setOffline(true);
+        Configuration.getInstance().setLicenseCachePath(cache.getAbsolutePath());
+        for(String uri:uris){
+            GetLicense.getCache().put("license "+uri, license);
+        }
+        GetLicense.getCache().put("title "+license, "Creative Commons Attribution 4.0");
+    }
+
+    /**
+     * URI of the generated vocabularies.
+     */
+    public static String generatedURI(int classes){
+        return "http://example.org/generated/"+classes+"#";
+    }
+
+    /**
+     * Generates a vocabulary with an ontology header and a number of classes
+     * with labels and comments in several languages.
+     * @param dir folder where the vocabulary is saved
+     * @param classes number of classes
+     * @param serialization RDF/XML, TURTLE or N3
+     * @return the file of the vocabulary
+     * @throws IOException 
+     */
+    public static File generateVocabulary(File dir, int classes, String serialization) throws IOException{
+        Random r = new Random(seed);
+        String ns = generatedURI(classes);
+        Model m = ModelFactory.createDefaultModel();
+        m.setNsPrefix("gen", ns);
+        Resource onto = m.createResource(ns);
+        onto.addProperty(RDF.type, OWL.Ontology);
+        onto.addProperty(DCTerms.title, "Generated vocabulary ("+classes+" classes)", "en");
+        onto.addProperty(DCTerms.description, text(r, 80), "en");
+        onto.addProperty(DCTerms.license, m.createResource(license));
+        onto.addProperty(DCTerms.created, "2015-01-01");
+        for(int i=0; i<classes; i++){
+            Resource c = m.createResource(ns+"Class"+i);
+            c.addProperty(RDF.type, OWL.Class);
+            c.addProperty(RDFS.label, "Class "+i, languages[r.nextInt(languages.length)]);
+            c.addProperty(RDFS.comment, text(r, 20), languages[r.nextInt(languages.length)]);
+            if(i > 0){
+                c.addProperty(RDFS.subClassOf, m.createResource(ns+"Class"+r.nextInt(i)));
+            }
+        }
+        String extension = FormatDetector.RDF_XML.equals(serialization)? ".owl" : 
+                (FormatDetector.TURTLE.equals(serialization)? ".ttl" : ".n3");
+        File f = new File(dir, "generated"+classes+extension);
+        try(OutputStream out = new FileOutputStream(f)){
+            m.write(out, serialization);
+        }
+        return f;
+    }
+
+    /**
+     * Generates the metadata of a number of vocabularies (as extracted by vocabLite).
+     * @param n
+     * @return 
+     */
+    public static List<Vocabulary> generateVocabularies(int n){
+        Random r = new Random(seed);
+        ArrayList<Vocabulary> vocabs = new ArrayList<>();
+        for(int i=0; i<n; i++){
+            Vocabulary v = new Vocabulary();
+            v.setUri("http://example.org/vocab"+i+"#");
+            v.setName("vocab"+i+".ttl");
+            v.setVocabPath("vocab"+i+".ttl");
+            v.setTitle("Vocabulary "+i);
+            v.setDescription(text(r, 10+r.nextInt(100)));
+            v.setLicense(license);
+            v.setLicenseTitle("Creative Commons Attribution 4.0");
+            v.setSupportedSerializations(new ArrayList<>(Arrays.asList(FormatDetector.TURTLE)));
+            ArrayList<String> l = new ArrayList<>();
+            l.add(languages[r.nextInt(languages.length)]);
+            l.add(languages[r.nextInt(languages.length)]);
+            v.setLanguages(l);
+            vocabs.add(v);
+        }
+        return vocabs;
+    }
+
+    private static String text(Random r, int words){
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i<words; i++){
+            int length = 2+r.nextInt(8);
+            for(int j=0; j<length; j++){
+                sb.append((char)('a'+r.nextInt(26)));
+            }
+            sb.append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.Configuration;
+import oeg.vocablite.FormatDetector;
+import oeg.vocablite.VocabUtils;
+import oeg.vocablite.Vocabulary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Extracts the metadata of a vocabulary (VocabUtils.getVocabularyMetadata)
+ * loading a model or with the streaming extraction, with and without the
+ * header scanner of RDF/XML files. The license lookup is
+ * answered by a stubbed cache, so the benchmark runs offline.
+ * @author dgarijo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HeaderBenchmark {
+
+    //files of repoTest, or "generated" for a generated vocabulary of 20000 classes (Turtle or RDF/XML)
+    @Param({"bne.ttl", "p-plan.owl", "generated", "generated.rdf"})
+    public String vocabulary;
+
+    @Param({"false", "true"})
+    public boolean streaming;
+
+    @Param({"false", "true"})
+    public boolean scan;
+
+    private File vocab;
+
+    @Setup
+    public void setup() throws Exception{
+        if(vocabulary.startsWith("generated")){
+            File dir = Files.createTempDirectory("vocablite-header").toFile();
+            dir.deleteOnExit();
+            vocab = BenchmarkFiles.generateVocabulary(dir, 20000, 
+                    vocabulary.endsWith(".rdf") ? FormatDetector.RDF_XML : FormatDetector.TURTLE);
+            vocab.deleteOnExit();
+        }else{
+            vocab = new File(BenchmarkFiles.repoTest(), vocabulary);
+        }
+        BenchmarkFiles.offline();
+        //stub the license of the vocabulary
+        BenchmarkFiles.offline(VocabUtils.getVocabularyMetadata(vocab).getUri());
+        Configuration.getInstance().setStreamingExtraction(streaming);
+        Configuration.getInstance().setHeaderScan(scan);
+    }
+
+    @Benchmark
+    public Vocabulary extractMetadata(){
+        return VocabUtils.getVocabularyMetadata(vocab);
+    }
+
+}
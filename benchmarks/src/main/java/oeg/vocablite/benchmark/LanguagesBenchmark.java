@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.Configuration;
+import oeg.vocablite.FormatDetector;
+import oeg.vocablite.Languages;
+import oeg.vocablite.VocabUtils;
+import oeg.vocablite.Vocabulary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Detection of the languages used in a vocabulary (SPARQL query over a 
+ * loaded model) and lookup of the language tags in the registry.
+ * @author dgarijo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LanguagesBenchmark {
+
+    private OntModel model;
+    private ArrayList<String> tags;
+
+    @Setup
+    public void setup() throws Exception{
+        File dir = Files.createTempDirectory("vocablite-languages").toFile();
+        dir.deleteOnExit();
+        File vocab = BenchmarkFiles.generateVocabulary(dir, 20000, FormatDetector.TURTLE);
+        vocab.deleteOnExit();
+        model = ModelFactory.createOntologyModel(Configuration.getInstance().getModelSpec());
+        try(InputStream in = new FileInputStream(vocab)){
+            model.read(in, null, FormatDetector.TURTLE);
+        }
+        tags = new ArrayList<>();
+        for(Vocabulary v:BenchmarkFiles.generateVocabularies(1000)){
+            tags.addAll(v.getLanguage());
+        }
+    }
+
+    @Benchmark
+    public ArrayList<String> languagesUsed(){
+        return VocabUtils.getLanguagesUsed(model);
+    }
+
+    @Benchmark
+    public void lookupTags(Blackhole bh){
+        for(String tag:tags){
+            bh.consume(Languages.getLanguageURI(tag));
+        }
+    }
+
+}
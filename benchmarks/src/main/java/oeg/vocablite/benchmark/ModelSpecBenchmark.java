@@ -0,0 +1,84 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.Configuration;
+import oeg.vocablite.VocabUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loads repoTest/bne.ttl with and without RDFS inference and reads what
+ * getVocabularyMetadata reads: the ontology header and the languages used.
+ * The Licensius lookup is left out, so the benchmark runs offline.
+ * Run with -prof gc to compare the memory allocated by each model spec.
+ * @author dgarijo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModelSpecBenchmark {
+
+    @Param({"false", "true"})
+    public boolean inference;
+
+    private File vocab;
+
+    @Setup
+    public void setup(){
+        vocab = new File(BenchmarkFiles.repoTest(), "bne.ttl");
+        Configuration.getInstance().setInference(inference);
+    }
+
+    @Benchmark
+    public void loadHeaderAndLanguages(Blackhole bh) throws Exception{
+        OntModel model = ModelFactory.createOntologyModel(Configuration.getInstance().getModelSpec());
+        try(InputStream in = new FileInputStream(vocab)){
+            model.read(in, null, "TURTLE");
+        }
+        Resource onto = model.listResourcesWithProperty(RDF.type, OWL.Ontology).next();
+        StmtIterator it = onto.listProperties();
+        while(it.hasNext()){
+            bh.consume(it.next());
+        }
+        bh.consume(VocabUtils.getLanguagesUsed(model));
+        model.close();
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import com.hp.hpl.jena.graph.Triple;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.FormatDetector;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a generated vocabulary in each serialization (the parser used
+ * by vocabLite, without building a model) and detects its format.
+ * @author dgarijo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({FormatDetector.RDF_XML, FormatDetector.TURTLE, FormatDetector.N3})
+    public String serialization;
+
+    @Param({"1000", "20000"})
+    public int classes;
+
+    private File vocab;
+    private byte[] head;
+
+    @Setup
+    public void setup() throws Exception{
+        File dir = Files.createTempDirectory("vocablite-parse").toFile();
+        dir.deleteOnExit();
+        vocab = BenchmarkFiles.generateVocabulary(dir, classes, serialization);
+        vocab.deleteOnExit();
+        head = Arrays.copyOf(Files.readAllBytes(vocab.toPath()), FormatDetector.sniffSize);
+    }
+
+    @Benchmark
+    public long parse() throws Exception{
+        TripleCounter counter = new TripleCounter();
+        try(InputStream in = new BufferedInputStream(new FileInputStream(vocab), 65536)){
+            RDFDataMgr.parse(counter, in, RDFLanguages.nameToLang(serialization));
+        }
+        return counter.triples;
+    }
+
+    @Benchmark
+    public String detectFormat(){
+        return FormatDetector.fromContent(head, head.length);
+    }
+
+    private static class TripleCounter extends StreamRDFBase{
+        private long triples;
+
+        @Override
+        public void triple(Triple triple) {
+            triples++;
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.CatalogWriter;
+import oeg.vocablite.Vocabulary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering of the rows of the catalog for generated vocabularies, and 
+ * writing of the whole catalog page.
+ * @author dgarijo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({"1000", "50000"})
+    public int vocabularies;
+
+    private List<Vocabulary> vocabs;
+    private File site;
+    private StringBuilder row;
+
+    @Setup
+    public void setup() throws Exception{
+        vocabs = BenchmarkFiles.generateVocabularies(vocabularies);
+        site = Files.createTempDirectory("vocablite-render").toFile();
+        site.deleteOnExit();
+        row = new StringBuilder();
+    }
+
+    @Benchmark
+    public long renderRows() throws Exception{
+        long length = 0;
+        int id = 1;
+        for(Vocabulary v:vocabs){
+            row.setLength(0);
+            v.writeHTMLRow(""+id, site, row);
+            length += row.length();
+            id++;
+        }
+        return length;
+    }
+
+    @Benchmark
+    public void writeCatalog() throws Exception{
+        File index = new File(site, "index.html");
+        index.deleteOnExit();
+        CatalogWriter catalog = new CatalogWriter(index.getAbsolutePath(), "Benchmark", site);
+        try{
+            for(Vocabulary v:vocabs){
+                catalog.addVocabulary(v);
+            }
+        }finally{
+            catalog.close();
+        }
+    }
+
+}
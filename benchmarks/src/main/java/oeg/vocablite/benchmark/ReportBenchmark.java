@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.Report;
+import oeg.vocablite.ReportWriter;
+import oeg.vocablite.TextConstants;
+import oeg.vocablite.Vocabulary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of the report: html page of a filled report, and RDF 
+ * entries written with ReportWriter.
+ * @author dgarijo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Param({"1000", "10000"})
+    public int vocabularies;
+
+    private List<Vocabulary> vocabs;
+    private Report report;
+
+    @Setup
+    public void setup(){
+        vocabs = BenchmarkFiles.generateVocabularies(vocabularies);
+        report = new Report(){};
+        int i = 0;
+        for(Vocabulary v:vocabs){
+            //one vocabulary out of 10 has a warning, one out of 20 an error
+            if(i%20 == 0){
+                report.addErrorForVocab(v.getUri(), TextConstants.Error.PARSING_ERR);
+            }else if(i%10 == 0){
+                report.addWarningForVocab(v.getUri(), TextConstants.Warning.LICENCE_NOT_FOUND);
+            }else{
+                report.addSuccessfulEntry(v.getUri());
+            }
+            i++;
+        }
+    }
+
+    @Benchmark
+    public String htmlSerialization(){
+        return report.htmlSerialization();
+    }
+
+    @Benchmark
+    public void writeEntries() throws Exception{
+        File f = File.createTempFile("report", ".ttl");
+        ReportWriter w = new ReportWriter(f);
+        try{
+            for(Vocabulary v:vocabs){
+                String entry = "Entry"+v.getUri().replace("/", "").replace(".", "").replace(":", "");
+                w.addIndividual(entry, TextConstants.entry, "Entry for vocab "+v.getUri());
+                w.addProperty(entry, v.getUri(), TextConstants.entrySubject);
+                w.addProperty(entry, TextConstants.successStatus, TextConstants.vocabularyStatus);
+            }
+        }finally{
+            w.close();
+            f.delete();
+        }
+    }
+
+}
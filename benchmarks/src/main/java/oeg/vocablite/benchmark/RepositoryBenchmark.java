@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.ProcessRepository;
+import oeg.vocablite.RepositoryGenerator;
+import oeg.vocablite.Vocabulary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Processes a generated repository (RepositoryGenerator) with 
+ * ProcessRepository.processRepositoryFolder, offline.
+ * @author dgarijo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"200"})
+    public int vocabs;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private File repository;
+
+    @Setup
+    public void setup() throws Exception{
+        repository = Files.createTempDirectory("vocablite-repository").toFile();
+        RepositoryGenerator g = new RepositoryGenerator();
+        g.setVocabs(vocabs);
+        g.setClasses(10, 2000);
+        g.generate(repository);
+        BenchmarkFiles.offline();
+    }
+
+    @Benchmark
+    public ArrayList<Vocabulary> processRepository(){
+        return ProcessRepository.processRepositoryFolder(repository.getAbsolutePath(), threads);
+    }
+
+}
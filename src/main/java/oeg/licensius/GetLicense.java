@@ -16,6 +16,7 @@
 package oeg.licensius;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -24,6 +25,8 @@ import java.util.HashMap;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
+import oeg.vocablite.Configuration;
+import oeg.vocablite.PersistentCache;
 import oeg.vocablite.Report;
 import oeg.vocablite.TextConstants;
 
@@ -35,9 +38,54 @@ import oeg.vocablite.TextConstants;
 public class GetLicense {
     
     
+    private static PersistentCache cache;
+    
+    /**
+     * Cache of the answers of the Licensius service. Created the first time 
+     * it is used, with the options of the configuration.
+     * @return 
+     */
+    public static synchronized PersistentCache getCache(){
+        if(cache == null){
+            Configuration c = Configuration.getInstance();
+            cache = new PersistentCache(new File(c.getLicenseCachePath()), c.getCacheTTL(), 
+                    TextConstants.cacheFailureTTL, TextConstants.cacheMaxEntries);
+        }
+        return cache;
+    }
+    
+    /**
+     * Saves the answers of the service, so they can be reused in the next run.
+     */
+    public static void saveCache(){
+        if(cache != null){
+            cache.save();
+        }
+    }
+    
    public static String getTitle(String licenseURI) {
+    String key = "title "+licenseURI;
+    boolean offline = Configuration.getInstance().isOffline();
+    PersistentCache.Entry cached = getCache().get(key, offline);
+    if(cached != null){
+        return cached.isFailure()? "unknown" : cached.getValue();
+    }
+    if(offline){
+        return "unknown";
+    }
     String output="unknown";
     try {
+        output = requestTitle(licenseURI);
+        getCache().put(key, output);
+    } catch (Exception e) {
+        getCache().putFailure(key);
+        //Report.getInstance().addWarningForVocab(licenseURI, TextConstants.Warning.LICENCE_NOT_FOUND);
+    }
+    return output;
+}
+
+private static String requestTitle(String licenseURI) throws Exception {
+        String output;
         String uri=TextConstants.licensiusURIServiceLicenseInfo;
         String encodedData = URLEncoder.encode(licenseURI);
         uri+=encodedData;
@@ -64,16 +112,33 @@ public class GetLicense {
                 JSONObject array=(JSONObject)obj;
                 output = (String) array.get("label");
         conn.disconnect();
-    } catch (Exception e) {
-        //Report.getInstance().addWarningForVocab(licenseURI, TextConstants.Warning.LICENCE_NOT_FOUND);
-    }
-    return output;
+        return output;
 }
 
 
 public static String getFirstLicenseFound(String uriToScan) {
+    String key = "license "+uriToScan;
+    boolean offline = Configuration.getInstance().isOffline();
+    PersistentCache.Entry cached = getCache().get(key, offline);
+    if(cached != null && !cached.isFailure()){
+        return cached.getValue();
+    }
     String output="unknown";
-    try {
+    if(cached == null && !offline){
+        try {
+            output = requestFirstLicenseFound(uriToScan);
+            getCache().put(key, output);
+            return output;
+        } catch (Exception e) {
+            getCache().putFailure(key);
+        }
+    }
+    //failed now, in a previous run, or not available offline
+    Report.getInstance().addWarningForVocab(uriToScan, TextConstants.Warning.LICENCE_NOT_FOUND);
+    return output;
+}
+
+private static String requestFirstLicenseFound(String uriToScan) throws Exception {
         String uri=TextConstants.licensiusURIServiceLicense;
         String encodedData = URLEncoder.encode(uriToScan);
         uri+=encodedData;
@@ -98,6 +163,7 @@ public static String getFirstLicenseFound(String uriToScan) {
         JSONParser parser=new JSONParser();
         Object obj=parser.parse(r);
         JSONArray array=(JSONArray)obj;
+        conn.disconnect();
         for (Object o : array) {
             String ll=(String)((HashMap)o).get("license");
             if (!ll.isEmpty())
@@ -105,11 +171,7 @@ public static String getFirstLicenseFound(String uriToScan) {
                 return ll;
             }
         }
-        conn.disconnect();
-    } catch (Exception e) {
-        Report.getInstance().addWarningForVocab(uriToScan, TextConstants.Warning.LICENCE_NOT_FOUND);
-    }
-    return output;
+        return "unknown";
 }
 
 //old invokation to the service
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.tdb.TDBFactory;
+import java.io.File;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Command to query the catalog store created with -store offline, when no
+ * vocabLite process is using it, without processing the repository again.
+ * The graphs of the vocabularies and the report are queried as a single
+ * graph. The store cannot be opened while it is used by another process: a
+ * -serve process answers the queries itself at TextConstants.serverQueryPath
+ * (see SiteServer), and a -watch process has to be stopped first.
+ * Usage: java -cp vocab.jar oeg.vocablite.CatalogQuery -store folder
+ * [-query SPARQL query | -file file with the query] [-format text|json|csv|tsv]
+ * (the vocabularies of the catalog are listed if there is no query).
+ * @author dgarijo
+ */
+public class CatalogQuery {
+
+    public static void main(String[] args){
+        String storePath = null;
+        String query = Queries.catalogVocabularies;
+        String format = "text";
+        try{
+            int argNumber = 0;
+            while(argNumber < args.length){
+                String s = args[argNumber];
+                if(s.equals("-store")){
+                    argNumber++;
+                    storePath = args[argNumber];
+                }else if(s.equals("-query")){
+                    argNumber++;
+                    query = args[argNumber];
+                }else if(s.equals("-file")){
+                    argNumber++;
+                    query = new String(Files.readAllBytes(new File(args[argNumber]).toPath()), StandardCharsets.UTF_8);
+                }else if(s.equals("-format")){
+                    argNumber++;
+                    format = args[argNumber];
+                }
+                argNumber++;
+            }
+        }catch(Exception e){
+            storePath = null;
+        }
+        if(storePath == null){
+            System.out.println("Usage: java -cp vocab.jar oeg.vocablite.CatalogQuery -store folder [-query SPARQL query | -file file with the query] [-format text|json|csv|tsv]");
+            return;
+        }
+        if(!new File(storePath).isDirectory()){
+            System.err.println("The store "+storePath+" does not exist");
+            return;
+        }
+        FileLock lock = CatalogStore.lock(new File(storePath));
+        if(lock == null){
+            System.err.println("The store "+storePath+" is being used by another process (query it at http://localhost:port"
+                    +TextConstants.serverQueryPath+" if it is running with -serve, or stop it to query the store)");
+            return;
+        }
+        Dataset dataset = TDBFactory.createDataset(storePath);
+        try{
+            long start = System.nanoTime();
+            CatalogStore.query(dataset, query, format, 0, System.out);
+            System.out.flush();
+            System.err.println("Query answered in "+(System.nanoTime()-start)/1000000+" ms");
+        }catch(Exception e){
+            System.err.println("Could not answer the query: "+e.getMessage());
+        }finally{
+            dataset.close();
+            CatalogStore.release(lock);
+        }
+    }
+
+}
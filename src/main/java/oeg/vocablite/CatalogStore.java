@@ -0,0 +1,349 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.ReadWrite;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.query.ResultSetFormatter;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.tdb.TDB;
+import com.hp.hpl.jena.tdb.TDBFactory;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.jena.riot.RDFDataMgr;
+
+/**
+ * Catalog of the repository kept in a TDB dataset (see -store), so it can be
+ * queried with SPARQL without generating the site again: by the process
+ * that uses the store (see query and the endpoint of SiteServer), or with
+ * CatalogQuery when no process is using it.
+ * The metadata of each vocabulary is kept in a named graph (the URI of its
+ * file), which is only written when the metadata has changed, and the
+ * report of the last run in the graph TextConstants.storeReportGraph.
+ * The graphs of the vocabularies that are no longer in the repository are
+ * removed at the end of each run.
+ * A TDB dataset can only be used by one process at a time: the store is
+ * locked (TextConstants.storeLockName) while it is open, so it cannot be
+ * queried with CatalogQuery while a -watch or -serve process is running
+ * (the -serve process answers the queries instead).
+ * The dataset is closed when the process ends (see close).
+ * @author dgarijo
+ */
+public class CatalogStore {
+    private static CatalogStore s;
+    private final Dataset dataset;
+    //graphs of the vocabularies of the current run
+    private final HashSet<String> seen;
+    private final FileLock lock;
+
+    private CatalogStore(String path){
+        new File(path).mkdirs();
+        lock = lock(new File(path));
+        if(lock == null){
+            throw new IllegalStateException("The store "+path+" is being used by another process");
+        }
+        dataset = TDBFactory.createDataset(path);
+        seen = new HashSet<>();
+    }
+
+    /**
+     * @return the store of Configuration.getStorePath() (null if there is no store).
+     * @throws IllegalStateException if the store is used by another process
+     */
+    public static synchronized CatalogStore getInstance(){
+        if(s == null && Configuration.getInstance().getStorePath() != null){
+            s = new CatalogStore(Configuration.getInstance().getStorePath());
+            //watch and serve mode end when the process is stopped
+            Runtime.getRuntime().addShutdownHook(new Thread(){
+                @Override
+                public void run() {
+                    close();
+                }
+            });
+        }
+        return s;
+    }
+
+    /**
+     * Syncs and closes the store (if it is open) and releases its lock.
+     */
+    public static synchronized void close(){
+        if(s == null){
+            return;
+        }
+        synchronized(s){
+            try{
+                TDB.sync(s.dataset);
+                s.dataset.close();
+            }finally{
+                release(s.lock);
+            }
+        }
+        s = null;
+    }
+
+    /**
+     * Locks a store folder, so it is not used by two processes at the same
+     * time (the lock is released if the process dies).
+     * @param folder
+     * @return the lock, or null if the store is locked by another process.
+     */
+    static FileLock lock(File folder){
+        try{
+            FileChannel channel = new RandomAccessFile(new File(folder, TextConstants.storeLockName), "rw").getChannel();
+            try{
+                FileLock l = channel.tryLock();
+                if(l != null){
+                    return l;
+                }
+            }catch(OverlappingFileLockException e){
+                //locked by this process
+            }
+            channel.close();
+        }catch(IOException e){
+            System.err.println("Could not lock the store: "+e.getMessage());
+        }
+        return null;
+    }
+
+    static void release(FileLock l){
+        try{
+            l.release();
+            l.channel().close();
+        }catch(IOException e){
+            System.err.println("Could not release the lock of the store: "+e.getMessage());
+        }
+    }
+
+    /**
+     * Answers a SPARQL query over the store in a read transaction, so it can
+     * be answered while the store is being updated.
+     * @param query query (the prefixes of Queries.catalogPrefixes are declared)
+     * @param format format of the results of SELECT and ASK queries (text, 
+     * json, csv or tsv). The results of CONSTRUCT and DESCRIBE queries are 
+     * written in Turtle.
+     * @param timeout time (ms) to answer the query (0 for no limit)
+     * @param out
+     * @return the content type of the results
+     */
+    public String query(String query, String format, long timeout, OutputStream out) throws IOException{
+        return query(dataset, query, format, timeout, out);
+    }
+
+    /**
+     * Answers a SPARQL query over a store. The graphs of the vocabularies 
+     * and the report are queried as a single graph.
+     */
+    static String query(Dataset dataset, String query, String format, long timeout, OutputStream out) throws IOException{
+        dataset.begin(ReadWrite.READ);
+        try{
+            Query q = QueryFactory.create(Queries.catalogPrefixes+query);
+            QueryExecution qe = QueryExecutionFactory.create(q, dataset);
+            qe.getContext().set(TDB.symUnionDefaultGraph, true);
+            if(timeout > 0){
+                qe.setTimeout(timeout);
+            }
+            try{
+                if(q.isSelectType()){
+                    return writeResults(qe.execSelect(), format, out);
+                }else if(q.isAskType()){
+                    return writeResult(qe.execAsk(), format, out);
+                }
+                Model m = q.isConstructType() ? qe.execConstruct() : qe.execDescribe();
+                m.write(out, "TURTLE");
+                return "text/turtle; charset=UTF-8";
+            }finally{
+                qe.close();
+            }
+        }finally{
+            dataset.end();
+        }
+    }
+
+    private static String writeResults(ResultSet results, String format, OutputStream out){
+        switch(format){
+            case "json":
+                ResultSetFormatter.outputAsJSON(out, results);
+                return "application/sparql-results+json; charset=UTF-8";
+            case "csv":
+                ResultSetFormatter.outputAsCSV(out, results);
+                return "text/csv; charset=UTF-8";
+            case "tsv":
+                ResultSetFormatter.outputAsTSV(out, results);
+                return "text/tab-separated-values; charset=UTF-8";
+            default:
+                ResultSetFormatter.out(out, results);
+                return "text/plain; charset=UTF-8";
+        }
+    }
+
+    private static String writeResult(boolean result, String format, OutputStream out) throws IOException{
+        switch(format){
+            case "json":
+                ResultSetFormatter.outputAsJSON(out, result);
+                return "application/sparql-results+json; charset=UTF-8";
+            case "csv":
+                ResultSetFormatter.outputAsCSV(out, result);
+                return "text/csv; charset=UTF-8";
+            case "tsv":
+                ResultSetFormatter.outputAsTSV(out, result);
+                return "text/tab-separated-values; charset=UTF-8";
+            default:
+                out.write((result+"\n").getBytes(StandardCharsets.UTF_8));
+                return "text/plain; charset=UTF-8";
+        }
+    }
+
+    /**
+     * Saves the metadata of a batch of vocabularies (in one transaction).
+     * @param batch
+     */
+    public synchronized void addVocabularies(List<Vocabulary> batch){
+        dataset.begin(ReadWrite.WRITE);
+        try{
+            int updated = 0;
+            for(Vocabulary v:batch){
+                String graph = getGraphName(v);
+                seen.add(graph);
+                Model m = describe(v);
+                Model stored = dataset.getNamedModel(graph);
+                if(!stored.isIsomorphicWith(m)){
+                    stored.removeAll();
+                    stored.add(m);
+                    updated++;
+                }
+            }
+            dataset.commit();
+            if(updated > 0){
+                System.out.println(updated+" vocabularies updated in the store");
+            }
+        }finally{
+            dataset.end();
+        }
+    }
+
+    /**
+     * Removes the vocabularies that have not been added in this run, and
+     * replaces the report by the one of this run.
+     * @param report file of the report (N-Triples)
+     */
+    public synchronized void endRun(File report){
+        dataset.begin(ReadWrite.WRITE);
+        try{
+            ArrayList<String> removed = new ArrayList<>();
+            Iterator<String> names = dataset.listNames();
+            while(names.hasNext()){
+                String name = names.next();
+                if(!seen.contains(name) && !name.equals(TextConstants.storeReportGraph)){
+                    removed.add(name);
+                }
+            }
+            for(String name:removed){
+                dataset.getNamedModel(name).removeAll();
+            }
+            Model r = dataset.getNamedModel(TextConstants.storeReportGraph);
+            r.removeAll();
+            if(report != null && report.exists()){
+                RDFDataMgr.read(r, report.getAbsolutePath());
+            }
+            dataset.commit();
+            if(!removed.isEmpty()){
+                System.out.println(removed.size()+" vocabularies removed from the store");
+            }
+        }finally{
+            dataset.end();
+        }
+        seen.clear();
+    }
+
+    /**
+     * @param v
+     * @return name of the graph of a vocabulary (URI of its file).
+     */
+    private static String getGraphName(Vocabulary v){
+        return new File(v.getVocabPath()).toURI().toString();
+    }
+
+    /**
+     * @param v
+     * @return the metadata of a vocabulary as RDF.
+     */
+    static Model describe(Vocabulary v){
+        Model m = ModelFactory.createDefaultModel();
+        String uri = v.getUri();
+        if(uri == null || !uri.contains(":")){
+            //no URI declared in the vocabulary (the path of the file is used)
+            uri = getGraphName(v);
+        }
+        Resource r = m.createResource(uri);
+        r.addProperty(RDF.type, m.createResource(TextConstants.vocabulary));
+        r.addProperty(m.createProperty(TextConstants.dcterms+"source"), m.createResource(getGraphName(v)));
+        if(v.getName() != null){
+            r.addProperty(m.createProperty(TextConstants.storeFile), TextConstants.ontologyFolder+"/"+v.getName());
+        }
+        addLiteral(r, TextConstants.dcterms+"title", v.getTitle());
+        addLiteral(r, TextConstants.dcterms+"description", v.getDescription());
+        addLiteral(r, TextConstants.vann+"preferredNamespacePrefix", v.getPrefix());
+        addLiteral(r, TextConstants.dcterms+"created", v.getCreationDate());
+        addLiteral(r, TextConstants.dcterms+"modified", v.getLastModifiedDate());
+        addLiteral(r, TextConstants.storeLOVPage, v.getLovURI());
+        String license = v.getLicense();
+        if(license != null && !license.equals("unknown")){
+            if(license.startsWith("http://") || license.startsWith("https://")){
+                r.addProperty(m.createProperty(TextConstants.dcterms+"license"), m.createResource(license));
+            }else{
+                addLiteral(r, TextConstants.dcterms+"license", license);
+            }
+            addLiteral(r, TextConstants.storeLicenseTitle, v.getLicenseTitle());
+        }
+        if(v.getLanguage() != null){
+            for(String l:v.getLanguage()){
+                addLiteral(r, TextConstants.dcterms+"language", l);
+            }
+        }
+        if(v.getSupportedSerializations() != null){
+            for(String serialization:v.getSupportedSerializations()){
+                addLiteral(r, TextConstants.detectedSerialization, serialization);
+            }
+        }
+        return m;
+    }
+
+    private static void addLiteral(Resource r, String property, String value){
+        if(value != null && !value.isEmpty()){
+            r.addProperty(r.getModel().createProperty(property), value);
+        }
+    }
+
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import org.json.simple.JSONValue;
+
+/**
+ * Writer of the catalog pages (index.html, index-2.html, etc.). The rows of 
+ * the vocabularies are written to the pages as they are added, so the pages 
+ * are never kept in memory. Each page has at most pageSize rows and links 
+ * to the pages around it. An index of all the vocabularies (with their page)
+ * is saved in catalog.json, and the index used to search them in search.json
+ * (see SearchIndex).
+ * The pages are written to temporary files that replace the previous ones
+ * when the writer is closed, so the pages being served are always complete.
+ * In watch mode, the rows of the previous pages are reused for the 
+ * vocabularies that have not changed.
+ * @author dgarijo
+ */
+public class CatalogWriter {
+    private final File file;
+    private final String repoName;
+    private final File outputFolder;
+    private final int pageSize;
+    //pages written (temporary files)
+    private final ArrayList<File> written;
+    private Writer out;
+    private final Writer index;
+    private final File indexTmp;
+    private final SearchIndex search;
+    //buffer for the row being rendered (reused for all the rows)
+    private final StringBuilder row;
+    private int rows;
+    private int entries;
+    //rows of the previous pages (null if they are not kept) and of these pages
+    private final IdentityHashMap<Vocabulary, Row> previousRows;
+    private final IdentityHashMap<Vocabulary, Row> currentRows;
+
+    /**
+     * Creates a catalog with all the vocabularies in a single page.
+     * @param path path of the catalog page
+     * @param repoName name of the repository
+     * @param outputFolder folder of the site
+     * @throws IOException 
+     */
+    public CatalogWriter(String path, String repoName, File outputFolder) throws IOException {
+        this(path, repoName, outputFolder, 0, null);
+    }
+
+    /**
+     * @param path path of the first catalog page
+     * @param repoName name of the repository
+     * @param outputFolder folder of the site
+     * @param pageSize maximum number of rows of a page (0 for a single page)
+     * @param previousRows rows of the previous pages (see getRows). If not 
+     * null, the rows of these pages are kept too.
+     * @throws IOException 
+     */
+    public CatalogWriter(String path, String repoName, File outputFolder, int pageSize, 
+            IdentityHashMap<Vocabulary, Row> previousRows) throws IOException {
+        this.file = new File(path).getAbsoluteFile();
+        this.repoName = repoName;
+        this.outputFolder = outputFolder;
+        this.pageSize = pageSize;
+        this.written = new ArrayList<>();
+        this.row = new StringBuilder(4096);
+        this.rows = 0;
+        this.previousRows = previousRows;
+        this.currentRows = previousRows == null ? null : new IdentityHashMap<Vocabulary, Row>();
+        this.indexTmp = new File(outputFolder, TextConstants.catalogIndexName+".tmp");
+        this.index = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexTmp), "UTF-8"), 64*1024);
+        index.write("[");
+        this.search = new SearchIndex();
+        startPage();
+    }
+
+    /**
+     * Name of a page of the catalog.
+     * @param page number of the page (starting at 1)
+     * @return 
+     */
+    private String getPageName(int page){
+        if(page == 1){
+            return file.getName();
+        }
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name+"-"+page : name.substring(0, dot)+"-"+page+name.substring(dot);
+    }
+
+    private void startPage() throws IOException{
+        File tmp = new File(file.getParentFile(), getPageName(written.size()+1)+".tmp");
+        written.add(tmp);
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"), 64*1024);
+        out.write(TextConstants.getheader(repoName));
+        out.write(TextConstants.getNavBarVocab(repoName));
+        out.write(TextConstants.tableHeadVocab);
+    }
+
+    private void endPage() throws IOException{
+        try{
+            out.write(TextConstants.tableEnd);
+        }finally{
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the end of a page (the number of pages is known once all the 
+     * vocabularies have been added).
+     * @param page 
+     * @param pages total number of pages
+     */
+    private void writeFooter(int page, int pages) throws IOException{
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(written.get(page-1), true), "UTF-8"));
+        try{
+            if(pages > 1){
+                writePagination(page, pages);
+            }
+            out.write(TextConstants.descriptionScript);
+            out.write(TextConstants.end);
+            out.write(TextConstants.searchScriptAndEndDocument);
+        }finally{
+            out.close();
+        }
+    }
+
+    /**
+     * Links to the first and last pages and to the pages around the current
+     * one (so the size of the navigation does not depend on the number of pages).
+     * @param page 
+     * @param pages total number of pages
+     */
+    private void writePagination(int page, int pages) throws IOException{
+        out.write("<ul class=\"pagination\">\n");
+        writePageLink(page-1, "&laquo;", page == 1, false);
+        int from = Math.max(1, page-TextConstants.paginationWindow);
+        int to = Math.min(pages, page+TextConstants.paginationWindow);
+        if(from > 1){
+            writePageLink(1, "1", false, false);
+            if(from > 2){
+                writePageLink(0, "...", true, false);
+            }
+        }
+        for(int i = from; i <= to; i++){
+            writePageLink(i, ""+i, false, i == page);
+        }
+        if(to < pages){
+            if(to < pages-1){
+                writePageLink(0, "...", true, false);
+            }
+            writePageLink(pages, ""+pages, false, false);
+        }
+        writePageLink(page+1, "&raquo;", page == pages, false);
+        out.write("</ul>\n");
+    }
+
+    private void writePageLink(int page, String label, boolean disabled, boolean active) throws IOException{
+        if(disabled){
+            out.write("<li class=\"disabled\"><span>"+label+"</span></li>\n");
+        }else{
+            out.write("<li"+(active?" class=\"active\"":"")+"><a href=\""+getPageName(page)+"\">"+label+"</a></li>\n");
+        }
+    }
+
+    /**
+     * Writes the row of a vocabulary. If the row cannot be rendered, the
+     * vocabulary is skipped (its id is not reused).
+     * @param v
+     * @throws IOException if the page cannot be written
+     */
+    public void addVocabulary(Vocabulary v) throws IOException{
+        long start = System.nanoTime();
+        if(pageSize > 0 && rows > 0 && rows % pageSize == 0){
+            endPage();
+            startPage();
+        }
+        rows++;
+        Row previous = previousRows == null ? null : previousRows.get(v);
+        if(previous != null && previous.id == rows && previous.name.equals(String.valueOf(v.getName()))){
+            //the vocabulary has not changed and its row is in the same position (and published file)
+            out.append(previous.html);
+            currentRows.put(v, previous);
+        }else{
+            row.setLength(0);
+            try{
+                v.writeHTMLRow(""+rows, outputFolder, row);
+            }catch(Exception e){
+                System.err.println("Could not process vocabulary: "+e.getMessage());
+                return;
+            }
+            out.append(row);
+            if(currentRows != null){
+                currentRows.put(v, new Row(rows, String.valueOf(v.getName()), row.toString()));
+            }
+        }
+        addIndexEntry(v);
+        search.add(rows, v);
+        Metrics.getInstance().record(v, Metrics.Phase.RENDER, start);
+    }
+
+    /**
+     * Adds the entry of a vocabulary to catalog.json.
+     * @param v 
+     */
+    private void addIndexEntry(Vocabulary v) throws IOException{
+        if(entries++ > 0){
+            index.write(",\n");
+        }
+        index.write("{\"id\":"+rows+",\"page\":\""+getPageName(written.size())+"\"");
+        writeIndexField("uri", v.getUri());
+        writeIndexField("title", v.getTitle());
+        writeIndexField("prefix", v.getPrefix());
+        writeIndexField("file", v.getName() == null ? null : TextConstants.ontologyFolder+"/"+v.getName());
+        writeIndexField("license", v.getLicense());
+        if(v.getLanguage() != null){
+            index.write(",\"languages\":[");
+            for(int i = 0; i < v.getLanguage().size(); i++){
+                index.write((i>0?",":"")+"\""+escape(v.getLanguage().get(i))+"\"");
+            }
+            index.write("]");
+        }
+        index.write("}");
+    }
+
+    private void writeIndexField(String key, String value) throws IOException{
+        if(value != null){
+            index.write(",\""+key+"\":\""+escape(value)+"\"");
+        }
+    }
+
+    private static String escape(String value){
+        //"/" does not need to be escaped
+        return JSONValue.escape(value).replace("\\/", "/");
+    }
+
+    /**
+     * Rows written in these pages (null if they are not kept).
+     * @return 
+     */
+    public IdentityHashMap<Vocabulary, Row> getRows(){
+        return currentRows;
+    }
+
+    /**
+     * Writes the end of the pages, replaces the previous pages and removes
+     * the pages that are no longer needed.
+     * @throws IOException 
+     */
+    public void close() throws IOException{
+        try{
+            endPage();
+            for(int i = 1; i <= written.size(); i++){
+                writeFooter(i, written.size());
+            }
+        }finally{
+            index.write("]\n");
+            index.close();
+        }
+        replace(indexTmp, new File(outputFolder, TextConstants.catalogIndexName));
+        File searchTmp = new File(outputFolder, TextConstants.searchIndexName+".tmp");
+        search.save(searchTmp);
+        replace(searchTmp, new File(outputFolder, TextConstants.searchIndexName));
+        for(int i = 0; i < written.size(); i++){
+            replace(written.get(i), new File(file.getParentFile(), getPageName(i+1)));
+        }
+        //pages of a previous run with more vocabularies
+        for(int i = written.size()+1; new File(file.getParentFile(), getPageName(i)).delete(); i++){
+        }
+    }
+
+    private static void replace(File tmp, File f) throws IOException{
+        try{
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch(AtomicMoveNotSupportedException e){
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Rendered row of a vocabulary.
+     */
+    public static class Row{
+        private final int id;
+        //name of the published file
+        private final String name;
+        private final String html;
+
+        Row(int id, String name, String html) {
+            this.id = id;
+            this.name = name;
+            this.html = html;
+        }
+    }
+
+}
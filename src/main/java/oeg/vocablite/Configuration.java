@@ -0,0 +1,356 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.ontology.OntModelSpec;
+import java.io.File;
+
+/**
+ * Class that keeps the options of the current execution (number of threads, etc.).
+ * The options are filled in by MainSiteCreator from the command line.
+ * @author dgarijo
+ */
+public class Configuration {
+    private static Configuration c;
+    private int threads;
+    private boolean streamingExtraction;
+    private boolean inference;
+    private boolean forceRebuild;
+    private String licenseCachePath;
+    private long cacheTTL;
+    private boolean offline;
+    private boolean lov;
+    private String lovEndpoint;
+    private String lovCachePath;
+    private TextConstants.PublishMode publishMode;
+    private boolean watch;
+    private long watchDebounce;
+    private int pageSize;
+    private long largeFileThreshold;
+    private long memoryBudget;
+    private boolean headerScan;
+    private long languageSample;
+    private String storePath;
+    private boolean serve;
+    private int port;
+
+    protected Configuration(){
+        threads = 1;
+        streamingExtraction = false;
+        inference = false;
+        forceRebuild = false;
+        licenseCachePath = System.getProperty("user.home")+File.separator+TextConstants.licenseCacheName;
+        cacheTTL = TextConstants.cacheTTL;
+        offline = false;
+        lov = false;
+        lovEndpoint = Queries.LOVEndpoint;
+        lovCachePath = System.getProperty("user.home")+File.separator+TextConstants.lovCacheName;
+        publishMode = TextConstants.PublishMode.COPY;
+        watch = false;
+        watchDebounce = TextConstants.watchDebounce;
+        pageSize = TextConstants.pageSize;
+        largeFileThreshold = TextConstants.largeFileThreshold;
+        memoryBudget = Runtime.getRuntime().maxMemory()/2;
+        headerScan = true;
+        languageSample = TextConstants.languageSample;
+        storePath = null;
+        serve = false;
+        port = TextConstants.serverPort;
+    }
+
+    public static synchronized Configuration getInstance(){
+        if(c == null){
+            c = new Configuration();
+        }
+        return c;
+    }
+
+    /**
+     * Number of worker threads used to parse and extract the metadata of
+     * the vocabularies. 1 means sequential processing.
+     * @return
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        if(threads < 1){
+            threads = 1;
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * If true, the metadata of the vocabularies is extracted while parsing,
+     * without loading the vocabularies in memory.
+     * @return
+     */
+    public boolean isStreamingExtraction() {
+        return streamingExtraction;
+    }
+
+    public void setStreamingExtraction(boolean streamingExtraction) {
+        this.streamingExtraction = streamingExtraction;
+    }
+
+    /**
+     * If true, the vocabularies are loaded with RDFS inference (Jena's default
+     * ontology model). Disabled by default, as the metadata we extract does
+     * not need it and the reasoner slows down every query.
+     * @return
+     */
+    public boolean isInference() {
+        return inference;
+    }
+
+    public void setInference(boolean inference) {
+        this.inference = inference;
+    }
+
+    /**
+     * @return the specification of the ontology models created to load vocabularies.
+     */
+    public OntModelSpec getModelSpec(){
+        if(inference){
+            return OntModelSpec.OWL_MEM_RDFS_INF;
+        }
+        return OntModelSpec.OWL_MEM;
+    }
+
+    /**
+     * If true, the manifest of the previous run is ignored and all the 
+     * vocabularies are processed again.
+     * @return
+     */
+    public boolean isForceRebuild() {
+        return forceRebuild;
+    }
+
+    public void setForceRebuild(boolean forceRebuild) {
+        this.forceRebuild = forceRebuild;
+    }
+
+    /**
+     * File where the answers of the Licensius service are cached.
+     * @return
+     */
+    public String getLicenseCachePath() {
+        return licenseCachePath;
+    }
+
+    public void setLicenseCachePath(String licenseCachePath) {
+        this.licenseCachePath = licenseCachePath;
+    }
+
+    /**
+     * Time (ms) after which a cached answer of a remote service is requested again.
+     * @return
+     */
+    public long getCacheTTL() {
+        return cacheTTL;
+    }
+
+    public void setCacheTTL(long cacheTTL) {
+        this.cacheTTL = cacheTTL;
+    }
+
+    /**
+     * If true, remote services are not called: only the cached answers are used.
+     * @return
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * If true, the vocabularies are looked up in LOV (Linked Open Vocabularies).
+     * @return
+     */
+    public boolean isLov() {
+        return lov;
+    }
+
+    public void setLov(boolean lov) {
+        this.lov = lov;
+    }
+
+    public String getLovEndpoint() {
+        return lovEndpoint;
+    }
+
+    public void setLovEndpoint(String lovEndpoint) {
+        this.lovEndpoint = lovEndpoint;
+    }
+
+    /**
+     * File where the answers of LOV are cached.
+     * @return
+     */
+    public String getLovCachePath() {
+        return lovCachePath;
+    }
+
+    public void setLovCachePath(String lovCachePath) {
+        this.lovCachePath = lovCachePath;
+    }
+
+    /**
+     * How the vocabulary files are published in the ontologies folder of the site.
+     * @return
+     */
+    public TextConstants.PublishMode getPublishMode() {
+        return publishMode;
+    }
+
+    public void setPublishMode(TextConstants.PublishMode publishMode) {
+        this.publishMode = publishMode;
+    }
+
+    /**
+     * If true, the repository is monitored after the site is created and the
+     * site is updated when the vocabularies change.
+     * @return
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    /**
+     * Time (ms) without changes in the repository before the site is updated.
+     * @return
+     */
+    public long getWatchDebounce() {
+        return watchDebounce;
+    }
+
+    public void setWatchDebounce(long watchDebounce) {
+        this.watchDebounce = watchDebounce;
+    }
+
+    /**
+     * Maximum number of vocabularies in each page of the catalog (0 for a single page).
+     * @return
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Size (bytes) above which a vocabulary is read from a memory-mapped file
+     * and only its header and languages are extracted (as with the streaming
+     * extraction), instead of loading it in a model.
+     * @return
+     */
+    public long getLargeFileThreshold() {
+        return largeFileThreshold;
+    }
+
+    public void setLargeFileThreshold(long largeFileThreshold) {
+        this.largeFileThreshold = largeFileThreshold;
+    }
+
+    /**
+     * Memory (bytes) shared by the vocabularies being parsed at the same
+     * time (see MemoryBudget). Half of the maximum heap by default.
+     * @return
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * If true, the header of the RDF/XML vocabularies is read without parsing
+     * the whole file (see RDFXMLHeaderScanner). The file is parsed when the
+     * header cannot be scanned.
+     * @return
+     */
+    public boolean isHeaderScan() {
+        return headerScan;
+    }
+
+    public void setHeaderScan(boolean headerScan) {
+        this.headerScan = headerScan;
+    }
+
+    /**
+     * Characters of a scanned vocabulary where the languages are looked for
+     * (0 for the whole file).
+     * @return
+     */
+    public long getLanguageSample() {
+        return languageSample;
+    }
+
+    public void setLanguageSample(long languageSample) {
+        this.languageSample = languageSample;
+    }
+
+    /**
+     * Folder of the TDB dataset where the catalog and the report are saved
+     * (see CatalogStore). Null if the catalog is not saved.
+     * @return
+     */
+    public String getStorePath() {
+        return storePath;
+    }
+
+    public void setStorePath(String storePath) {
+        this.storePath = storePath;
+    }
+
+    /**
+     * If true, the site is served over HTTP (see SiteServer) and updated
+     * when the repository changes (as in watch mode).
+     * @return
+     */
+    public boolean isServe() {
+        return serve;
+    }
+
+    public void setServe(boolean serve) {
+        this.serve = serve;
+    }
+
+    /**
+     * Port of the server (serve mode).
+     * @return
+     */
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+}
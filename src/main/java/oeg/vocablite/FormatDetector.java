@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.nio.charset.Charset;
+
+/**
+ * Class for guessing the serialization of a vocabulary before parsing it,
+ * using the extension of the file and its first bytes.
+ * @author dgarijo
+ */
+public class FormatDetector {
+    public static final String RDF_XML = "RDF/XML";
+    public static final String TURTLE = "TURTLE";
+    public static final String N3 = "N3";
+    /**
+     * Serializations tried when the format cannot be detected (in this order).
+     */
+    public static final String[] serializations = {RDF_XML, TURTLE, N3};
+    /**
+     * Number of bytes read to detect the format.
+     */
+    public static final int sniffSize = 4096;
+
+    /**
+     * Guess of the serialization based on the extension of the file.
+     * @param fileName
+     * @return the serialization, or null if the extension is not known.
+     */
+    public static String fromExtension(String fileName){
+        String name = fileName.toLowerCase();
+        if(name.endsWith(".ttl")){
+            return TURTLE;
+        }
+        if(name.endsWith(".n3")){
+            return N3;
+        }
+        if(name.endsWith(".owl")||name.endsWith(".rdf")||name.endsWith(".rdfs")||name.endsWith(".xml")){
+            return RDF_XML;
+        }
+        return null;
+    }
+
+    /**
+     * Detection of the serialization from the first bytes of a file.
+     * @param head first bytes of the file
+     * @param length number of valid bytes in head
+     * @return the serialization, or null if the content is not conclusive.
+     */
+    public static String fromContent(byte[] head, int length){
+        if(length <= 0){
+            return null;
+        }
+        String text = new String(head, 0, length, Charset.forName("UTF-8"));
+        int i = 0;
+        //skip BOM, white spaces and comments
+        while(i < text.length()){
+            char c = text.charAt(i);
+            if(c == '\uFEFF' || Character.isWhitespace(c)){
+                i++;
+            }else if(c == '#'){
+                int eol = text.indexOf('\n', i);
+                if(eol == -1){
+                    return null;
+                }
+                i = eol+1;
+            }else{
+                break;
+            }
+        }
+        if(i >= text.length()){
+            return null;
+        }
+        String start = text.substring(i);
+        if(start.startsWith("<?xml") || start.startsWith("<!DOCTYPE") || start.startsWith("<!--")
+                || start.startsWith("<rdf:RDF") || start.startsWith("<RDF")){
+            return RDF_XML;
+        }
+        String lower = start.toLowerCase();
+        if(start.startsWith("@prefix") || start.startsWith("@base") || lower.startsWith("prefix")
+                || lower.startsWith("base") || isIRI(start)){
+            if(isN3(text)){
+                return N3;
+            }
+            return TURTLE;
+        }
+        return null;
+    }
+
+    /**
+     * The document starts with an IRI (e.g., &lt;http://...&gt;) and not an element.
+     */
+    private static boolean isIRI(String start){
+        if(!start.startsWith("<")){
+            return false;
+        }
+        int end = start.indexOf('>');
+        if(end == -1){
+            return false;
+        }
+        String iri = start.substring(1, end);
+        return iri.isEmpty() || iri.contains("://") || iri.startsWith("#");
+    }
+
+    /**
+     * Notation 3 constructs not allowed in Turtle.
+     */
+    private static boolean isN3(String text){
+        return text.contains("@keywords") || text.contains("@forAll") || text.contains("@forSome");
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+/**
+ * HTTP client shared by all the content negotiation requests of a run.
+ * Connections are pooled (with a limit per host) and every request has
+ * connect and read timeouts, so a slow server cannot stall the run.
+ * @author dgarijo
+ */
+public class HttpUtils {
+    private static CloseableHttpClient client;
+    private static ExecutorService probes;
+
+    public static synchronized CloseableHttpClient getClient(){
+        if(client == null){
+            PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+            cm.setMaxTotal(TextConstants.httpMaxConnections);
+            cm.setDefaultMaxPerRoute(TextConstants.httpMaxConnectionsPerHost);
+            RequestConfig config = RequestConfig.custom()
+                    .setConnectTimeout(TextConstants.httpConnectTimeout)
+                    .setSocketTimeout(TextConstants.httpReadTimeout)
+                    .setConnectionRequestTimeout(TextConstants.httpConnectTimeout)
+                    .build();
+            client = HttpClients.custom().setConnectionManager(cm).setDefaultRequestConfig(config).build();
+        }
+        return client;
+    }
+
+    private static synchronized ExecutorService getProbes(){
+        if(probes == null){
+            probes = Executors.newFixedThreadPool(TextConstants.httpMaxConnections, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "vocablite-http");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return probes;
+    }
+
+    /**
+     * Returns which of the serializations are available for a URI. All the
+     * serializations are requested at the same time.
+     * @param uri
+     * @param serializations
+     * @return the available serializations, in the order they were given.
+     */
+    public static ArrayList<String> getSupportedSerializations(final String uri, String[] serializations){
+        ArrayList<Future<Boolean>> results = new ArrayList<>();
+        for(final String s:serializations){
+            results.add(getProbes().submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return hasSerialization(uri, s);
+                }
+            }));
+        }
+        ArrayList<String> supportedSerializations = new ArrayList<>();
+        for(int i=0; i<serializations.length; i++){
+            try{
+                if(results.get(i).get()){
+                    supportedSerializations.add(serializations[i]);
+                }
+            }catch(Exception e){
+                System.err.println("Error while doing http get: "+serializations[i]+" in "+uri+" "+ e.getMessage());
+            }
+        }
+        return supportedSerializations;
+    }
+
+    /**
+     * Given a URI and a serialization, this method returns if it is supported.
+     * A HEAD request is sent first. If the server does not accept HEAD, a GET
+     * is sent and aborted as soon as the headers have been received.
+     * @param uri
+     * @param serialization
+     * @return
+     */
+    public static boolean hasSerialization(String uri, String serialization){
+        try {
+            HttpHead head = new HttpHead(uri);
+            head.setHeader("Accept", serialization);
+            CloseableHttpResponse response = getClient().execute(head);
+            int status;
+            try{
+                status = response.getStatusLine().getStatusCode();
+                if(status == 200){
+                    return hasContentType(response, serialization);
+                }
+            }finally{
+                response.close();
+            }
+            if(status != 405 && status != 501){
+                return false;
+            }
+            HttpGet get = new HttpGet(uri);
+            get.setHeader("Accept", serialization);
+            response = getClient().execute(get);
+            try{
+                return response.getStatusLine().getStatusCode() == 200 && hasContentType(response, serialization);
+            }finally{
+                //we only need the headers
+                get.abort();
+                response.close();
+            }
+        } catch (Exception e) {
+            System.err.println("Error while doing http get: "+serialization+" in "+uri+" "+ e.getMessage());
+        }
+        return false;
+    }
+
+    private static boolean hasContentType(CloseableHttpResponse response, String serialization){
+        Header contentType = response.getFirstHeader("Content-Type");
+        return contentType != null && contentType.getValue().contains(serialization);
+    }
+
+}
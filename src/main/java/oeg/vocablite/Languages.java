@@ -4,9 +4,26 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Languages {
 	
+	private static final String lexvoISO6393 = "http://lexvo.org/id/iso639-3/";
+	//shared registry, built once
+	private static final Languages registry = new Languages();
+	//lexvo URIs indexed by the letters of the ISO 639-1 (2 letters) and ISO 639-3 (3 letters) codes
+	private static final String[] uris2 = new String[26*26];
+	private static final String[] uris3 = new String[26*26*26];
+	//language tags found so far (each tag is kept only once)
+	private static final ConcurrentHashMap<String, String> tags = new ConcurrentHashMap<String, String>();
+	
+	static {
+		for(Entry<String, String> e:registry.mapLang.entrySet()){
+			uris2[index(e.getKey(), 0, 2)] = e.getValue();
+			uris3[index(e.getValue(), lexvoISO6393.length(), 3)] = e.getValue();
+		}
+	}
+	
 	public HashMap <String, String> mapLang = new HashMap<String, String>();
 	public HashMap <String, String> mapLangEnglish = new HashMap<String, String>();
 	
@@ -385,6 +402,68 @@ public class Languages {
 
 	}
 
+	/**
+	 * Shared instance of the language maps (it should not be modified).
+	 * @return
+	 */
+	public static Languages getInstance() {
+		return registry;
+	}
+	
+	/**
+	 * Returns the lexvo URI of the language of a BCP 47 tag (e.g., en, en-GB, 
+	 * spa, zh-Hant-TW), using its primary language subtag. No objects are 
+	 * created in the lookup.
+	 * @param tag
+	 * @return the URI, or null if the language is not known.
+	 */
+	public static String getLanguageURI(String tag) {
+		if(tag == null){
+			return null;
+		}
+		int end = 0;
+		while(end < tag.length() && tag.charAt(end) != '-' && tag.charAt(end) != '_'){
+			end++;
+		}
+		if(end == 2 || end == 3){
+			int i = index(tag, 0, end);
+			if(i != -1){
+				return end == 2 ? uris2[i] : uris3[i];
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the shared copy of a language tag, so repeated tags are kept 
+	 * only once in memory.
+	 * @param tag
+	 * @return
+	 */
+	public static String intern(String tag) {
+		String t = tags.putIfAbsent(tag, tag);
+		return t == null ? tag : t;
+	}
+	
+	/**
+	 * Index of a code of letters in the lookup tables (case insensitive).
+	 * @return the index, or -1 if the code has other characters.
+	 */
+	private static int index(String s, int start, int length) {
+		int i = 0;
+		for(int j = start; j < start+length; j++){
+			char c = s.charAt(j);
+			if(c >= 'A' && c <= 'Z'){
+				c = (char) (c + ('a'-'A'));
+			}
+			if(c < 'a' || c > 'z'){
+				return -1;
+			}
+			i = i*26 + (c-'a');
+		}
+		return i;
+	}
+	
 	public HashMap<String, String> getMapLang() {
 		return mapLang;
 	}
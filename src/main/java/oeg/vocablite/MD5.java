@@ -20,6 +20,10 @@ package oeg.vocablite;
  *
  * Codigo para crear MD5 Hash
  */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -52,4 +56,35 @@ public class MD5 {
         return convertToHex(md5hash);
 
     }
+
+    /**
+     * MD5 hash of the contents of a file
+     * @param file
+     * @return 
+     */
+    public static String MD5(File file)
+    throws NoSuchAlgorithmException, IOException  {
+        return MD5(new FileInputStream(file));
+    }
+
+    /**
+     * MD5 hash of the contents of a stream (the stream is closed)
+     * @param in
+     * @return 
+     */
+    public static String MD5(InputStream in)
+    throws NoSuchAlgorithmException, IOException  {
+        MessageDigest md;
+        md = MessageDigest.getInstance("MD5");
+        byte[] buffer = new byte[65536];
+        try{
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                md.update(buffer, 0, length);
+            }
+        }finally{
+            in.close();
+        }
+        return convertToHex(md.digest());
+    }
 }
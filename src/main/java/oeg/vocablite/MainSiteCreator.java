@@ -17,7 +17,14 @@ package oeg.vocablite;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import oeg.licensius.GetLicense;
 
 /**
  * Class for processing vocabularies and converting them to HTML.
@@ -27,17 +34,50 @@ import java.util.ArrayList;
  * @author dgarijo and mpoveda
  */
 public class MainSiteCreator {
+    /**
+     * Extracts the resources of the site (css, js, etc.). If the folder has
+     * a stamp with the checksums of the same resources, nothing is extracted.
+     * @param savePath 
+     */
     public static void createFolderStructure(String savePath){
+        File stamp = new File(savePath, TextConstants.assetStampName);
+        String checksums = getAssetChecksums();
+        if(checksums != null && !Configuration.getInstance().isForceRebuild() && stamp.exists()){
+            try{
+                if(checksums.equals(new String(Files.readAllBytes(stamp.toPath()), "UTF-8"))){
+                    return;
+                }
+            }catch(IOException e){
+                System.err.println("Could not read "+stamp.getAbsolutePath()+": "+e.getMessage());
+            }
+        }
         VocabUtils.unZipIt(TextConstants.vocabResources, savePath);
         //copy vocab on the Ontologies folder
         File ont = new File( savePath+File.separator+TextConstants.ontologyFolder);
         ont.mkdirs();
         VocabUtils.unZipIt(TextConstants.oopsResources, ont.getAbsolutePath());
+        if(checksums != null){
+            VocabUtils.saveDocument(stamp.getAbsolutePath(), checksums);
+        }
         
 //        File reportFolder = new File (savePath+File.separator+TextConstants.reportFolder);
 //        reportFolder.mkdirs(); 
 //        VocabUtils.unZipIt(TextConstants.vocabResources, reportFolder.getAbsolutePath());
     }
+    
+    /**
+     * Checksums of the resources bundled with the application.
+     * @return the checksums, or null if they could not be computed.
+     */
+    private static String getAssetChecksums(){
+        try{
+            return TextConstants.vocabResources+" "+MD5.MD5(MainSiteCreator.class.getResourceAsStream(TextConstants.vocabResources))+"\n"
+                    +TextConstants.oopsResources+" "+MD5.MD5(MainSiteCreator.class.getResourceAsStream(TextConstants.oopsResources))+"\n";
+        }catch(Exception e){
+            System.err.println("Could not compute the checksums of the resources: "+e.getMessage());
+            return null;
+        }
+    }
     public static void main(String[] args) throws IOException{
         String pathToRepo = "";
 //        pathToRepo = args[1];
@@ -59,14 +99,67 @@ public class MainSiteCreator {
                 }else if(s.equals("-n")){
                     argNumber++;
                     repoName = args[argNumber];
+                }else if(s.equals("-threads")){
+                    argNumber++;
+                    Configuration.getInstance().setThreads(Integer.parseInt(args[argNumber]));
+                }else if(s.equals("-streaming")){
+                    Configuration.getInstance().setStreamingExtraction(true);
+                }else if(s.equals("-inference")){
+                    Configuration.getInstance().setInference(true);
+                }else if(s.equals("-force")){
+                    Configuration.getInstance().setForceRebuild(true);
+                }else if(s.equals("-licenseCache")){
+                    argNumber++;
+                    Configuration.getInstance().setLicenseCachePath(args[argNumber]);
+                }else if(s.equals("-cacheTTL")){
+                    argNumber++;
+                    Configuration.getInstance().setCacheTTL(Long.parseLong(args[argNumber])*24*60*60*1000);
+                }else if(s.equals("-offline")){
+                    Configuration.getInstance().setOffline(true);
+                }else if(s.equals("-lov")){
+                    Configuration.getInstance().setLov(true);
+                }else if(s.equals("-lovEndpoint")){
+                    argNumber++;
+                    Configuration.getInstance().setLovEndpoint(args[argNumber]);
+                }else if(s.equals("-publish")){
+                    argNumber++;
+                    Configuration.getInstance().setPublishMode(TextConstants.PublishMode.valueOf(args[argNumber].toUpperCase()));
+                }else if(s.equals("-pageSize")){
+                    argNumber++;
+                    Configuration.getInstance().setPageSize(Integer.parseInt(args[argNumber]));
+                }else if(s.equals("-watch")){
+                    Configuration.getInstance().setWatch(true);
+                }else if(s.equals("-debounce")){
+                    argNumber++;
+                    Configuration.getInstance().setWatchDebounce(Long.parseLong(args[argNumber]));
+                }else if(s.equals("-largeFile")){
+                    argNumber++;
+                    Configuration.getInstance().setLargeFileThreshold(Long.parseLong(args[argNumber])*TextConstants.MB);
+                }else if(s.equals("-memoryBudget")){
+                    argNumber++;
+                    Configuration.getInstance().setMemoryBudget(Long.parseLong(args[argNumber])*TextConstants.MB);
+                }else if(s.equals("-fullParse")){
+                    Configuration.getInstance().setHeaderScan(false);
+                }else if(s.equals("-languageSample")){
+                    argNumber++;
+                    Configuration.getInstance().setLanguageSample(Long.parseLong(args[argNumber])*1024);
+                }else if(s.equals("-store")){
+                    argNumber++;
+                    Configuration.getInstance().setStorePath(args[argNumber]);
+                }else if(s.equals("-serve")){
+                    Configuration.getInstance().setServe(true);
+                    Configuration.getInstance().setWatch(true);
+                }else if(s.equals("-port")){
+                    argNumber++;
+                    Configuration.getInstance().setPort(Integer.parseInt(args[argNumber]));
                 }
                 argNumber++;
             }
         }catch(Exception e){
-            System.out.println("Wrong input usage. Usage: java-jar vocab.jar -i input repository folder [-o outputDirectoryPath -n name of the repository -oops]");
+            System.out.println("Wrong input usage. Usage: java-jar vocab.jar -i input repository folder [-o outputDirectoryPath -n name of the repository -threads number of parsing threads -streaming -inference -force -licenseCache cache file -cacheTTL days -offline -lov -lovEndpoint url -publish copy|hardlink|symlink -pageSize vocabularies per page -watch -debounce ms -largeFile MB -memoryBudget MB -fullParse -languageSample KB -store folder -serve -port port -oops]");
         }
         if("".equals(pathToRepo)){
-            System.out.println("Usage: java-jar vocab.jar -i input repository folder [-o outputDirectoryPath -n name of the repository -oops]");//oops will activate/deactivate oops eval
+            System.out.println("Usage: java-jar vocab.jar -i input repository folder [-o outputDirectoryPath -n name of the repository -threads number of parsing threads -streaming -inference -force -licenseCache cache file -cacheTTL days -offline -lov -lovEndpoint url -publish copy|hardlink|symlink -pageSize vocabularies per page -watch -debounce ms -largeFile MB -memoryBudget MB -fullParse -languageSample KB -store folder -serve -port port -oops]");//oops will activate/deactivate oops eval
             return;
         }
 
@@ -84,29 +177,123 @@ public class MainSiteCreator {
             outputFolder = new File(outputFile);
             outputFolder.mkdirs();
         }
-        MainSiteCreator.createFolderStructure(outputFolder.getAbsolutePath());
-        String catalogOutPath = outputFolder.getAbsolutePath()+File.separator+TextConstants.siteName;
+        //the resources are extracted while the repository is processed
+        final String sitePath = outputFolder.getAbsolutePath();
+        ExecutorService assets = Executors.newSingleThreadExecutor();
+        Future<?> folderStructure = assets.submit(new Runnable() {
+            @Override
+            public void run() {
+                MainSiteCreator.createFolderStructure(sitePath);
+            }
+        });
+        assets.shutdown();
         String urlReportOut = outputFolder.getAbsolutePath()+File.separator+TextConstants.reportName;
-        String html = TextConstants.getheader(repoName)+TextConstants.getNavBarVocab(repoName);
-        html+=TextConstants.tableHeadVocab;
+        SiteServer server = null;
         try{
-            ArrayList<Vocabulary> vocs = ProcessRepository.processRepositoryFolder(pathToRepo);
-            int i=1;
-            for(Vocabulary v:vocs){
+            //the repository is monitored before it is processed, so no change is missed
+            RepositoryWatcher watcher = null;
+            if(Configuration.getInstance().isWatch()){
+                watcher = new RepositoryWatcher(pathToRepo, outputFolder, repoName);
+            }
+            //the site of the last run (if any) is served while the new one is created
+            if(Configuration.getInstance().isServe()){
+                final SiteServer s = new SiteServer(outputFolder, Configuration.getInstance().getPort());
+                s.start();
+                watcher.setUpdateListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        s.refresh();
+                    }
+                });
+                server = s;
+            }
+            Report.getInstance().open(urlReportOut);
+            //the store is opened (and locked) before the repository is processed
+            CatalogStore.getInstance();
+            Manifest manifest;
+            if(Configuration.getInstance().isForceRebuild()){
+                manifest = Manifest.create(outputFolder);
+            }else{
+                manifest = Manifest.load(outputFolder);
+            }
+            ArrayList<File> files = ProcessRepository.getVocabularyFiles(pathToRepo);
+            if(files == null){
+                System.err.println("The directory sent as parameter could not be read");
+                files = new ArrayList<>();
+            }
+            if(watcher == null){
+                //the vocabularies are added to the site as they are processed
+                manifest.open();
+                SiteWriter site = new SiteWriter(outputFolder, repoName, null);
                 try{
-                    html+=v.getHTMLSerializationAsRow(""+i, outputFolder);
-                }catch(Exception e){
-                    System.err.println("Could not process vocabulary: "+e.getMessage());
+                    ProcessRepository.processVocabularies(files, Configuration.getInstance().getThreads(), manifest, site);
+                }finally{
+                    site.close();
+                }
+                folderStructure.get();
+                saveSite(outputFolder, manifest);
+            }else{
+                //the vocabularies are kept to update the site when they change
+                ArrayList<Vocabulary> vocs = ProcessRepository.processVocabularies(files, Configuration.getInstance().getThreads(), manifest);
+                folderStructure.get();
+                IdentityHashMap<Vocabulary, CatalogWriter.Row> rows = createPages(vocs, outputFolder, repoName, 
+                        new IdentityHashMap<Vocabulary, CatalogWriter.Row>());
+                saveSite(outputFolder, manifest);
+                if(server != null){
+                    server.refresh();
                 }
-                i++;
+                watcher.watch(manifest, vocs, rows);
             }
-            html+=TextConstants.tableEnd+TextConstants.end;//+TextConstants.getScriptForFilteringAndEndDocument(domains);
-            VocabUtils.saveDocument(catalogOutPath, html);
-            Report.getInstance().saveReport(urlReportOut);
         }catch(Exception e){
             System.err.println("Could not create the site: "+e.getMessage());
 //            e.printStackTrace();
+        }finally{
+            //the workers of the server would keep the process serving a site that is no longer updated
+            if(server != null){
+                server.stop();
+            }
+            CatalogStore.close();
+        }
+    }
+    
+    /**
+     * Publishes the vocabularies and writes the catalog pages.
+     * @param vocs vocabularies of the repository
+     * @param outputFolder folder of the site
+     * @param repoName name of the repository
+     * @param previousRows rows of the previous catalog pages (null if the 
+     * rows are not kept)
+     * @return the rows of the new catalog pages (null if they are not kept)
+     * @throws IOException 
+     */
+    public static IdentityHashMap<Vocabulary, CatalogWriter.Row> createPages(List<Vocabulary> vocs, File outputFolder, 
+            String repoName, IdentityHashMap<Vocabulary, CatalogWriter.Row> previousRows) throws IOException{
+        SiteWriter site = new SiteWriter(outputFolder, repoName, previousRows);
+        try{
+            for(int i = 0; i < vocs.size(); i += TextConstants.vocabularyBatchSize){
+                site.handle(vocs.subList(i, Math.min(i+TextConstants.vocabularyBatchSize, vocs.size())));
+            }
+        }finally{
+            previousRows = site.close();
+        }
+        return previousRows;
+    }
+    
+    /**
+     * Saves the report, the metrics, the manifest and the caches of a run
+     * (and the catalog store, if any).
+     * @param outputFolder folder of the site
+     * @param manifest 
+     */
+    public static void saveSite(File outputFolder, Manifest manifest){
+        Report.getInstance().saveReport(outputFolder.getAbsolutePath()+File.separator+TextConstants.reportName);
+        if(CatalogStore.getInstance() != null){
+            CatalogStore.getInstance().endRun(new File(outputFolder, TextConstants.reportName+".ttl"));
         }
+        Metrics.getInstance().saveMetrics(outputFolder.getAbsolutePath()+File.separator+TextConstants.metricsName);
+        manifest.save();
+        GetLicense.saveCache();
+        VocabUtils.saveLOVCache();
     }
     
 }
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import oeg.vocablite.TextConstants.Warning;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Manifest of the vocabularies processed in a previous run. It is saved in the
+ * output folder and maps the path of each vocabulary to its size,
+ * modification date, MD5 hash and extracted metadata, so unchanged
+ * vocabularies do not have to be parsed again. The options used to extract
+ * the metadata are saved too: if they change, all the vocabularies are
+ * processed again.
+ * @author dgarijo
+ */
+public class Manifest {
+    private final File file;
+    private final HashMap<String, Entry> previous;
+    private final LinkedHashMap<String, Entry> current;
+    //if not null, the entries of this run are written as they are added (see open)
+    private Writer out;
+    private int written;
+
+    private Manifest(File file){
+        this.file = file;
+        previous = new HashMap<>();
+        current = new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates an empty manifest for an output folder, ignoring the previous one.
+     * @param outputFolder
+     * @return
+     */
+    public static Manifest create(File outputFolder){
+        return new Manifest(new File(outputFolder, TextConstants.manifestName));
+    }
+
+    /**
+     * Loads the manifest of an output folder. If there is no manifest (or it
+     * cannot be read) an empty one is returned.
+     * @param outputFolder
+     * @return
+     */
+    public static Manifest load(File outputFolder){
+        Manifest m = new Manifest(new File(outputFolder, TextConstants.manifestName));
+        if(m.file.exists()){
+            try{
+                Reader r = new BufferedReader(new InputStreamReader(new FileInputStream(m.file), "UTF-8"));
+                try{
+                    JSONObject json = (JSONObject) new JSONParser().parse(r);
+                    if(!getOptions().equals(json.get("options"))){
+                        System.out.println("The extraction options have changed, all vocabularies will be processed");
+                        return m;
+                    }
+                    for(Object o: (JSONArray) json.get("vocabularies")){
+                        Entry e = Entry.fromJSON((JSONObject) o);
+                        m.previous.put(e.path, e);
+                    }
+                }finally{
+                    r.close();
+                }
+            }catch(Exception e){
+                System.err.println("Could not read the manifest, all vocabularies will be processed: "+e.getMessage());
+                m.previous.clear();
+            }
+        }
+        return m;
+    }
+
+    /**
+     * @return the options of this execution that change the extracted
+     * metadata.
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONObject getOptions(){
+        Configuration c = Configuration.getInstance();
+        JSONObject options = new JSONObject();
+        options.put("streaming", c.isStreamingExtraction());
+        options.put("inference", c.isInference());
+        options.put("headerScan", c.isHeaderScan());
+        options.put("languageSample", c.getLanguageSample());
+        options.put("largeFileThreshold", c.getLargeFileThreshold());
+        return options;
+    }
+
+    /**
+     * Returns the entry of a vocabulary file if it has not changed since the
+     * previous run. Files with the same size and modification date are
+     * considered unchanged. If only the date changed, the hash is compared.
+     * @param f
+     * @return the previous entry, or null if the file is new or has changed.
+     */
+    public Entry getUnchangedEntry(File f){
+        Entry e = previous.get(f.getAbsolutePath());
+        if(e == null || e.size != f.length()){
+            return null;
+        }
+        if(e.lastModified == f.lastModified()){
+            return e;
+        }
+        try{
+            if(MD5.MD5(f).equals(e.hash)){
+                return new Entry(e.path, e.size, f.lastModified(), e.hash, e.vocabulary, e.warnings, e.prefix, e.lovURI);
+            }
+        }catch(Exception ex){
+            System.err.println("Could not compute the hash of "+f.getName()+": "+ex.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the manifest of the next run (watch mode): the entries of this
+     * run become the previous entries.
+     * @return 
+     */
+    public Manifest next(){
+        Manifest m = new Manifest(file);
+        m.previous.putAll(current);
+        return m;
+    }
+
+    /**
+     * Starts writing the entries of this run to a temporary file as they are
+     * added, instead of keeping them in memory. The file replaces the 
+     * manifest when it is saved.
+     * @throws IOException 
+     */
+    public void open() throws IOException{
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getTemporaryFile()), "UTF-8"));
+        out.write("{\"options\":"+getOptions().toJSONString()+",\"vocabularies\":[");
+        written = 0;
+    }
+
+    private File getTemporaryFile(){
+        return new File(file.getAbsolutePath()+".tmp");
+    }
+
+    /**
+     * Adds the entry of a vocabulary processed in this run.
+     * @param e
+     */
+    public void add(Entry e){
+        if(out == null){
+            current.put(e.path, e);
+            return;
+        }
+        try{
+            out.write((written++ > 0 ? ",\n" : "")+e.toJSON().toJSONString());
+        }catch(IOException ex){
+            System.err.println("Could not write the manifest: "+ex.getMessage());
+        }
+    }
+
+    /**
+     * Saves the entries added in this run (vocabularies that are no longer
+     * in the repository are dropped).
+     */
+    @SuppressWarnings("unchecked")
+    public void save(){
+        if(out != null){
+            try{
+                out.write("]}");
+                out.close();
+                out = null;
+                Files.move(getTemporaryFile().toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }catch(IOException e){
+                System.err.println("Could not write the manifest: "+e.getMessage());
+            }
+            return;
+        }
+        JSONArray vocabs = new JSONArray();
+        for(Entry e:current.values()){
+            vocabs.add(e.toJSON());
+        }
+        JSONObject json = new JSONObject();
+        json.put("options", getOptions());
+        json.put("vocabularies", vocabs);
+        VocabUtils.saveDocument(file.getAbsolutePath(), json.toJSONString());
+    }
+
+    /**
+     * Entry of the manifest: a vocabulary file and its metadata. The prefix
+     * and LOV page extracted from the file are kept apart, as the vocabulary
+     * is changed when it is looked up in LOV.
+     */
+    public static class Entry{
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final Vocabulary vocabulary;
+        //warnings raised while extracting the metadata (e.g., license not found)
+        private final List<Warning> warnings;
+        private final String prefix;
+        private final String lovURI;
+
+        /**
+         * Entry of a vocabulary that has just been extracted (before it is
+         * looked up in LOV).
+         */
+        public Entry(String path, long size, long lastModified, String hash, Vocabulary vocabulary, List<Warning> warnings) {
+            this(path, size, lastModified, hash, vocabulary, warnings, 
+                    vocabulary == null ? null : vocabulary.getPrefix(), vocabulary == null ? null : vocabulary.getLovURI());
+        }
+
+        private Entry(String path, long size, long lastModified, String hash, Vocabulary vocabulary, List<Warning> warnings,
+                String prefix, String lovURI) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.vocabulary = vocabulary;
+            this.warnings = warnings;
+            this.prefix = prefix;
+            this.lovURI = lovURI;
+        }
+
+        /**
+         * Creates the entry of a vocabulary that has just been processed.
+         * @param f
+         * @param v
+         * @param warnings
+         * @return
+         */
+        public static Entry create(File f, Vocabulary v, List<Warning> warnings){
+            String hash = null;
+            try{
+                hash = MD5.MD5(f);
+            }catch(Exception e){
+                System.err.println("Could not compute the hash of "+f.getName()+": "+e.getMessage());
+            }
+            return new Entry(f.getAbsolutePath(), f.length(), f.lastModified(), hash, v, warnings);
+        }
+
+        public Vocabulary getVocabulary() {
+            return vocabulary;
+        }
+
+        public List<Warning> getWarnings() {
+            return warnings;
+        }
+
+        @SuppressWarnings("unchecked")
+        private JSONObject toJSON(){
+            JSONObject json = new JSONObject();
+            json.put("path", path);
+            json.put("size", size);
+            json.put("lastModified", lastModified);
+            json.put("hash", hash);
+            JSONArray w = new JSONArray();
+            for(Warning warning:warnings){
+                w.add(warning.name());
+            }
+            json.put("warnings", w);
+            JSONObject v = vocabularyToJSON(vocabulary);
+            v.put("prefix", prefix);
+            v.put("lovURI", lovURI);
+            json.put("vocabulary", v);
+            return json;
+        }
+
+        private static Entry fromJSON(JSONObject json){
+            ArrayList<Warning> w = new ArrayList<>();
+            for(Object o:(JSONArray)json.get("warnings")){
+                w.add(Warning.valueOf((String)o));
+            }
+            return new Entry((String)json.get("path"), ((Number)json.get("size")).longValue(),
+                    ((Number)json.get("lastModified")).longValue(), (String)json.get("hash"),
+                    vocabularyFromJSON((JSONObject)json.get("vocabulary")), w);
+        }
+    }
+
+    /**
+     * JSON serialization of the metadata of a vocabulary.
+     * @param v
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static JSONObject vocabularyToJSON(Vocabulary v){
+        JSONObject json = new JSONObject();
+        json.put("title", v.getTitle());
+        json.put("name", v.getName());
+        json.put("uri", v.getUri());
+        json.put("lovURI", v.getLovURI());
+        json.put("supportedSerializations", toJSONArray(v.getSupportedSerializations()));
+        json.put("license", v.getLicense());
+        json.put("licenseTitle", v.getLicenseTitle());
+        json.put("description", v.getDescription());
+        json.put("languages", toJSONArray(v.getLanguage()));
+        json.put("domains", toJSONArray(v.getDomains()));
+        json.put("prefix", v.getPrefix());
+        json.put("creationDate", v.getCreationDate());
+        json.put("lastModifiedDate", v.getLastModifiedDate());
+        json.put("vocabPath", v.getVocabPath());
+        json.put("parsingTime", v.getParsingTime());
+        return json;
+    }
+
+    public static Vocabulary vocabularyFromJSON(JSONObject json){
+        Vocabulary v = new Vocabulary();
+        v.setTitle((String)json.get("title"));
+        v.setName((String)json.get("name"));
+        v.setUri((String)json.get("uri"));
+        v.setLovURI((String)json.get("lovURI"));
+        v.setSupportedSerializations(fromJSONArray((JSONArray)json.get("supportedSerializations")));
+        v.setLicense((String)json.get("license"));
+        v.setLicenseTitle((String)json.get("licenseTitle"));
+        if(json.get("description")!=null){
+            v.setDescription((String)json.get("description"));
+        }
+        ArrayList<String> languages = fromJSONArray((JSONArray)json.get("languages"));
+        if(languages != null){
+            for(int i=0; i<languages.size(); i++){
+                languages.set(i, Languages.intern(languages.get(i)));
+            }
+        }
+        v.setLanguages(languages);
+        v.setDomains(fromJSONArray((JSONArray)json.get("domains")));
+        v.setPrefix((String)json.get("prefix"));
+        v.setCreationDate((String)json.get("creationDate"));
+        v.setLastModifiedDate((String)json.get("lastModifiedDate"));
+        v.setVocabPath((String)json.get("vocabPath"));
+        if(json.get("parsingTime")!=null){
+            v.setParsingTime(((Number)json.get("parsingTime")).longValue());
+        }
+        return v;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray toJSONArray(List<String> l){
+        if(l == null){
+            return null;
+        }
+        JSONArray a = new JSONArray();
+        a.addAll(l);
+        return a;
+    }
+
+    private static ArrayList<String> fromJSONArray(JSONArray a){
+        if(a == null){
+            return null;
+        }
+        ArrayList<String> l = new ArrayList<>();
+        for(Object o:a){
+            l.add((String)o);
+        }
+        return l;
+    }
+
+}
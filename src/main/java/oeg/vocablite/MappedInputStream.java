@@ -0,0 +1,146 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream over a memory-mapped file, used to read large vocabularies.
+ * The file is mapped in windows of TextConstants.mappedWindowSize bytes, so
+ * files bigger than 2 GB can be read and only the window being read is
+ * mapped. The bytes are read from the page cache of the operating system
+ * without being copied to a buffer first.
+ * @author dgarijo
+ */
+public class MappedInputStream extends InputStream {
+    private final FileChannel channel;
+    private final long size;
+    //position in the file of the current window
+    private long windowStart;
+    private MappedByteBuffer window;
+    private long mark;
+
+    public MappedInputStream(File f) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(f, "r");
+        this.channel = file.getChannel();
+        this.size = channel.size();
+        map(0);
+    }
+
+    /**
+     * Maps the window that starts at a position of the file.
+     * @param position
+     */
+    private void map(long position) throws IOException{
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(TextConstants.mappedWindowSize, size-position));
+    }
+
+    /**
+     * @return whether there are bytes left to read (the next window is
+     * mapped if needed).
+     */
+    private boolean available0() throws IOException{
+        if(window == null){
+            throw new IOException("Stream closed");
+        }
+        if(window.hasRemaining()){
+            return true;
+        }
+        long next = windowStart+window.limit();
+        if(next >= size){
+            return false;
+        }
+        map(next);
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if(!available0()){
+            return -1;
+        }
+        return window.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0){
+            return 0;
+        }
+        if(!available0()){
+            return -1;
+        }
+        len = Math.min(len, window.remaining());
+        window.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long position = windowStart+window.position();
+        long target = Math.max(position, Math.min(size, position+n));
+        seek(target);
+        return target-position;
+    }
+
+    private void seek(long position) throws IOException{
+        if(position >= windowStart && position <= windowStart+window.limit()){
+            window.position((int)(position-windowStart));
+        }else{
+            map(position);
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        if(window == null){
+            throw new IOException("Stream closed");
+        }
+        return (int)Math.min(Integer.MAX_VALUE, size-windowStart-window.position());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = windowStart+window.position();
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        seek(mark);
+    }
+
+    /**
+     * Closes the file. The window is unmapped when it is garbage collected.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Memory shared by the workers that parse the vocabularies. Before parsing a
+ * vocabulary, a worker reserves the memory it is expected to need (see
+ * VocabUtils.getVocabularyMetadata) and waits if the rest of the workers are
+ * using the budget, so several huge files are not parsed at the same time.
+ * A file that needs more than the whole budget reserves all of it (it is
+ * parsed alone). The memory is counted in MB.
+ * @author dgarijo
+ */
+public class MemoryBudget {
+    private static MemoryBudget b;
+    private final Semaphore available;
+    private final int total;
+
+    private MemoryBudget(long bytes){
+        total = (int)Math.max(1, Math.min(Integer.MAX_VALUE, bytes/TextConstants.MB));
+        available = new Semaphore(total, true);
+    }
+
+    /**
+     * @return the budget of the current execution (Configuration.getMemoryBudget).
+     */
+    public static synchronized MemoryBudget getInstance(){
+        if(b == null){
+            b = new MemoryBudget(Configuration.getInstance().getMemoryBudget());
+        }
+        return b;
+    }
+
+    /**
+     * Waits until there is memory enough and reserves it.
+     * @param bytes memory needed
+     * @return the MB reserved, to be released with release()
+     */
+    public int acquire(long bytes){
+        int mb = (int)Math.min(total, Math.max(1, (bytes+TextConstants.MB-1)/TextConstants.MB));
+        available.acquireUninterruptibly(mb);
+        return mb;
+    }
+
+    public void release(int mb){
+        available.release(mb);
+    }
+
+}
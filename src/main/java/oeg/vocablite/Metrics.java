@@ -0,0 +1,212 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import org.json.simple.JSONObject;
+
+/**
+ * Time spent in each phase of a run (directory walk, parsing, etc.). 
+ * The times of each vocabulary are also kept in the vocabulary, so they can
+ * be added to the report. Totals and percentiles are exported in JSON and in
+ * the Prometheus text format.
+ * @author dgarijo
+ */
+public class Metrics {
+    private static volatile Metrics m;
+    private final long start;
+    //phase -> times (ns)
+    private final EnumMap<Phase, long[]> samples;
+    private final EnumMap<Phase, Integer> counts;
+
+    /**
+     * Phases of the processing of a vocabulary.
+     */
+    public enum Phase{
+        WALK("walk", null),
+        PARSE("parse", TextConstants.parsingTime),
+        HEADER("header", TextConstants.headerExtractionTime),
+        LANGUAGES("languages", TextConstants.languageDetectionTime),
+        LICENSE("license", TextConstants.licenseLookupTime),
+        PUBLISH("publish", TextConstants.publishingTime),
+        RENDER("render", TextConstants.renderingTime);
+
+        private final String label;
+        private final String reportProperty;
+
+        Phase(String label, String reportProperty){
+            this.label = label;
+            this.reportProperty = reportProperty;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return property of the report with the time of the phase (ms), or
+         * null if the phase is not measured per vocabulary.
+         */
+        public String getReportProperty() {
+            return reportProperty;
+        }
+    }
+
+    protected Metrics(){
+        start = System.nanoTime();
+        samples = new EnumMap<>(Phase.class);
+        counts = new EnumMap<>(Phase.class);
+        for(Phase p:Phase.values()){
+            samples.put(p, new long[64]);
+            counts.put(p, 0);
+        }
+    }
+
+    public static Metrics getInstance(){
+        if(m == null){
+            synchronized(Metrics.class){
+                if(m == null){
+                    m = new Metrics();
+                }
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Starts new metrics (watch mode: the metrics are saved after every
+     * change in the repository).
+     */
+    public static synchronized void reset(){
+        m = new Metrics();
+    }
+
+    /**
+     * Records the time of a phase.
+     * @param v vocabulary (null if the phase is not about a single vocabulary)
+     * @param p phase
+     * @param startTime System.nanoTime() when the phase started
+     */
+    public void record(Vocabulary v, Phase p, long startTime){
+        long time = System.nanoTime()-startTime;
+        synchronized(this){
+            long[] s = samples.get(p);
+            int n = counts.get(p);
+            if(n == s.length){
+                s = Arrays.copyOf(s, n*2);
+                samples.put(p, s);
+            }
+            s[n] = time;
+            counts.put(p, n+1);
+        }
+        if(v != null){
+            v.addPhaseTime(p, time);
+        }
+    }
+
+    private synchronized long[] getSamples(Phase p){
+        long[] s = Arrays.copyOf(samples.get(p), counts.get(p));
+        Arrays.sort(s);
+        return s;
+    }
+
+    /**
+     * Nearest-rank percentile of sorted samples.
+     */
+    private static long percentile(long[] sorted, double q){
+        if(sorted.length == 0){
+            return 0;
+        }
+        int rank = (int) Math.ceil(q*sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank)-1)];
+    }
+
+    private static long sum(long[] s){
+        long total = 0;
+        for(long t:s){
+            total += t;
+        }
+        return total;
+    }
+
+    /**
+     * Metrics in JSON (times in ms).
+     * @return 
+     */
+    @SuppressWarnings("unchecked")
+    public String jsonSerialization(){
+        JSONObject json = new JSONObject();
+        json.put("runTime", (System.nanoTime()-start)/1000000);
+        JSONObject phases = new JSONObject();
+        for(Phase p:Phase.values()){
+            long[] s = getSamples(p);
+            JSONObject phase = new JSONObject();
+            phase.put("count", s.length);
+            phase.put("total", ms(sum(s)));
+            phase.put("p50", ms(percentile(s, 0.5)));
+            phase.put("p90", ms(percentile(s, 0.9)));
+            phase.put("p99", ms(percentile(s, 0.99)));
+            phase.put("max", ms(s.length == 0? 0 : s[s.length-1]));
+            phases.put(p.getLabel(), phase);
+        }
+        json.put("phases", phases);
+        return json.toJSONString();
+    }
+
+    /**
+     * Metrics in the Prometheus text format (times in seconds).
+     * @return 
+     */
+    public String prometheusSerialization(){
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP vocablite_phase_seconds Time spent in each phase of the processing of the vocabularies.\n");
+        sb.append("# TYPE vocablite_phase_seconds summary\n");
+        for(Phase p:Phase.values()){
+            long[] s = getSamples(p);
+            for(double q:new double[]{0.5, 0.9, 0.99}){
+                sb.append("vocablite_phase_seconds{phase=\"").append(p.getLabel()).append("\",quantile=\"").append(q).append("\"} ")
+                        .append(seconds(percentile(s, q))).append("\n");
+            }
+            sb.append("vocablite_phase_seconds_sum{phase=\"").append(p.getLabel()).append("\"} ").append(seconds(sum(s))).append("\n");
+            sb.append("vocablite_phase_seconds_count{phase=\"").append(p.getLabel()).append("\"} ").append(s.length).append("\n");
+        }
+        sb.append("# HELP vocablite_run_seconds Duration of the run.\n");
+        sb.append("# TYPE vocablite_run_seconds gauge\n");
+        sb.append("vocablite_run_seconds ").append(seconds(System.nanoTime()-start)).append("\n");
+        return sb.toString();
+    }
+
+    /**
+     * Saves the metrics (path.json and path.prom).
+     * @param path path of the metrics (without extension)
+     */
+    public void saveMetrics(String path){
+        VocabUtils.saveDocument(path+".json", jsonSerialization());
+        VocabUtils.saveDocument(path+".prom", prometheusSerialization());
+    }
+
+    private static double ms(long ns){
+        return ns/1000000.0;
+    }
+
+    private static String seconds(long ns){
+        return String.format(Locale.ROOT, "%.6f", ns/1e9);
+    }
+
+}
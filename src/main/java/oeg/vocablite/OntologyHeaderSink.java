@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.jena.riot.system.StreamRDFBase;
+
+/**
+ * Triple sink that captures the header of an ontology (the properties of the
+ * owl:Ontology resource) and the language tags used in the document while the
+ * file is being parsed. No graph is kept in memory: only the header triples
+ * are stored.
+ * The header properties seen before the owl:Ontology declaration are kept
+ * until we know which subject is the ontology. They are always kept for the
+ * likely ontology subjects (the base URI and the namespaces declared in the
+ * document), but for the rest of the subjects only the first 
+ * TextConstants.headerCandidatesLimit triples are kept, so a vocabulary that
+ * declares its ontology at the end does not keep the labels of all its terms.
+ * If the ontology is not a likely subject and its header comes after the
+ * limit, those properties are lost.
+ * @author dgarijo
+ */
+public class OntologyHeaderSink extends StreamRDFBase {
+    /**
+     * Local names of the properties read from the ontology header.
+     */
+    public static final Set<String> headerProperties = new HashSet<>(Arrays.asList(
+            "title", "description", "abstract", "license", "rights", "created",
+            "modified", "preferredNamespacePrefix", "preferredNamespaceUri"));
+
+    private static final Node TYPE = RDF.type.asNode();
+    private static final Node ONTOLOGY = OWL.Ontology.asNode();
+
+    private Node ontology;
+    private List<Triple> header;
+    //header triples seen before we know which subject is the ontology
+    private HashMap<Node, List<Triple>> candidates;
+    //header triples kept in candidates for subjects that are not likely ontologies
+    private int unlikelyCandidates;
+    //base URI and namespaces of the document (without the final # or /)
+    private HashSet<String> namespaces;
+    private LinkedHashSet<String> languages;
+
+    public OntologyHeaderSink() {
+        reset();
+    }
+
+    /**
+     * Discards everything captured so far (e.g., before parsing again in
+     * another serialization).
+     */
+    public final void reset(){
+        ontology = null;
+        header = new ArrayList<>();
+        candidates = new HashMap<>();
+        unlikelyCandidates = 0;
+        namespaces = new HashSet<>();
+        languages = new LinkedHashSet<>();
+    }
+
+    @Override
+    public void base(String base) {
+        namespaces.add(stripSeparator(base));
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+        namespaces.add(stripSeparator(iri));
+    }
+
+    private static String stripSeparator(String uri){
+        if(uri.endsWith("#") || uri.endsWith("/")){
+            return uri.substring(0, uri.length()-1);
+        }
+        return uri;
+    }
+
+    /**
+     * @param s
+     * @return whether a subject is the base URI or a namespace of the document.
+     */
+    private boolean isLikelyOntology(Node s){
+        return s.isURI() && namespaces.contains(stripSeparator(s.getURI()));
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        Node s = triple.getSubject();
+        Node p = triple.getPredicate();
+        Node o = triple.getObject();
+        if(o.isLiteral()){
+            String lang = o.getLiteralLanguage();
+            if(lang != null && !lang.isEmpty()){
+                languages.add(lang);
+            }
+        }
+        if(ontology == null && TYPE.equals(p) && ONTOLOGY.equals(o)){
+            //we assume only one ontology per file.
+            ontology = s;
+            List<Triple> seen = candidates.get(s);
+            if(seen != null){
+                header.addAll(seen);
+            }
+            candidates = null;
+            return;
+        }
+        if(p.isURI() && headerProperties.contains(p.getLocalName())){
+            if(ontology == null){
+                if(!isLikelyOntology(s)){
+                    if(unlikelyCandidates >= TextConstants.headerCandidatesLimit){
+                        return;
+                    }
+                    unlikelyCandidates++;
+                }
+                List<Triple> l = candidates.get(s);
+                if(l == null){
+                    l = new ArrayList<>();
+                    candidates.put(s, l);
+                }
+                l.add(triple);
+            }else if(ontology.equals(s)){
+                header.add(triple);
+            }
+        }
+    }
+
+    /**
+     * @return true if an owl:Ontology declaration has been found.
+     */
+    public boolean hasOntology(){
+        return ontology != null;
+    }
+
+    /**
+     * @return the triples of the header of the ontology, in document order.
+     */
+    public List<Triple> getHeader() {
+        return header;
+    }
+
+    /**
+     * @return language tags used in the document, in order of appearance.
+     */
+    public ArrayList<String> getLanguages() {
+        ArrayList<String> l = new ArrayList<>();
+        for(String lang:languages){
+            l.add(Languages.intern(lang));
+        }
+        return l;
+    }
+
+}
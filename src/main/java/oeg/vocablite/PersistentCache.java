@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Key-value cache saved in a JSON file, used to avoid calling remote services
+ * (e.g., Licensius) on every run. Entries expire after a time to live, failed
+ * calls are cached too (for a shorter time) and, when the cache is full,
+ * the least recently used entries are removed.
+ * @author dgarijo
+ */
+public class PersistentCache {
+    private final File file;
+    private final long ttl;
+    private final long failureTtl;
+    private final LinkedHashMap<String, Entry> entries;
+    private boolean modified;
+
+    /**
+     * @param file file where the cache is saved
+     * @param ttl time to live of the entries (ms)
+     * @param failureTtl time to live of the failed calls (ms)
+     * @param maxEntries maximum number of entries kept
+     */
+    public PersistentCache(File file, long ttl, long failureTtl, final int maxEntries) {
+        this.file = file;
+        this.ttl = ttl;
+        this.failureTtl = failureTtl;
+        //access order: the first entry is the least recently used
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        load();
+    }
+
+    /**
+     * Returns the entry of a key.
+     * @param key
+     * @param allowExpired if true, expired entries are returned as well (offline mode)
+     * @return the entry, or null if the key is not in the cache (or has expired).
+     */
+    public synchronized Entry get(String key, boolean allowExpired){
+        Entry e = entries.get(key);
+        if(e == null){
+            return null;
+        }
+        if(!allowExpired && System.currentTimeMillis() - e.created > (e.failed? failureTtl : ttl)){
+            return null;
+        }
+        return e;
+    }
+
+    public synchronized void put(String key, String value){
+        entries.put(key, new Entry(value, System.currentTimeMillis(), false));
+        modified = true;
+    }
+
+    /**
+     * Records that the call for a key failed.
+     * @param key
+     */
+    public synchronized void putFailure(String key){
+        entries.put(key, new Entry(null, System.currentTimeMillis(), true));
+        modified = true;
+    }
+
+    private void load(){
+        if(!file.exists()){
+            return;
+        }
+        try{
+            Reader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try{
+                JSONObject json = (JSONObject) new JSONParser().parse(r);
+                for(Object o:(JSONArray)json.get("entries")){
+                    JSONObject e = (JSONObject) o;
+                    entries.put((String)e.get("key"), new Entry((String)e.get("value"),
+                            ((Number)e.get("created")).longValue(), (Boolean)e.get("failed")));
+                }
+            }finally{
+                r.close();
+            }
+        }catch(Exception e){
+            System.err.println("Could not read the cache "+file.getAbsolutePath()+": "+e.getMessage());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Saves the cache (if it has changed).
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void save(){
+        if(!modified){
+            return;
+        }
+        JSONArray a = new JSONArray();
+        for(Map.Entry<String, Entry> e:entries.entrySet()){
+            JSONObject o = new JSONObject();
+            o.put("key", e.getKey());
+            o.put("value", e.getValue().value);
+            o.put("created", e.getValue().created);
+            o.put("failed", e.getValue().failed);
+            a.add(o);
+        }
+        JSONObject json = new JSONObject();
+        json.put("entries", a);
+        if(file.getAbsoluteFile().getParentFile()!=null){
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        VocabUtils.saveDocument(file.getAbsolutePath(), json.toJSONString());
+        modified = false;
+    }
+
+    /**
+     * Cached value of a key.
+     */
+    public static class Entry{
+        private final String value;
+        private final long created;
+        private final boolean failed;
+
+        Entry(String value, long created, boolean failed) {
+            this.value = value;
+            this.created = created;
+            this.failed = failed;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return true if the cached call failed.
+         */
+        public boolean isFailure() {
+            return failed;
+        }
+    }
+
+}
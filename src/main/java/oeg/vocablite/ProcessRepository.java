@@ -6,7 +6,16 @@
 package oeg.vocablite;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import oeg.vocablite.TextConstants.Warning;
 
 /**
  * Class for processing the input file with the URIs and domains of the vocabs
@@ -16,25 +25,118 @@ import java.util.ArrayList;
 public class ProcessRepository {
     
     public static ArrayList<Vocabulary> processRepositoryFolder(String path){
-        ArrayList<Vocabulary> vocabs = new ArrayList<>();
-        File dir = new File (path);
-        if(dir.exists() && dir.isDirectory()){
-            getVocabList(dir, vocabs);
-        }else{
+        return processRepositoryFolder(path, Configuration.getInstance().getThreads(), null);
+    }
+    
+    public static ArrayList<Vocabulary> processRepositoryFolder(String path, int threads){
+        return processRepositoryFolder(path, threads, null);
+    }
+    
+    /**
+     * Method that processes all the vocabularies of a folder.
+     * @param path path of the repository
+     * @param threads number of workers used to parse the vocabularies. The 
+     * vocabularies are returned in the same order as in the sequential run.
+     * @param manifest manifest of a previous run (may be null). Vocabularies 
+     * that have not changed are taken from the manifest instead of being parsed.
+     * The manifest is updated with the vocabularies of this run.
+     * @return 
+     */
+    public static ArrayList<Vocabulary> processRepositoryFolder(String path, int threads, Manifest manifest){
+        ArrayList<File> files = getVocabularyFiles(path);
+        if(files == null){
             System.err.println("The directory sent as parameter could not be read");
+            return new ArrayList<>();
+        }
+        return processVocabularies(files, threads, manifest);
+    }
+    
+    /**
+     * Returns the vocabulary files of a repository (.ttl, .rdf, .owl, .xml, .rdfs).
+     * @param path path of the repository
+     * @return the files, or null if the folder cannot be read.
+     */
+    public static ArrayList<File> getVocabularyFiles(String path){
+        File dir = new File (path);
+        if(!dir.exists() || !dir.isDirectory()){
+            return null;
+        }
+        ArrayList<File> files = new ArrayList<>();
+        long start = System.nanoTime();
+        getVocabList(dir, files);
+        Metrics.getInstance().record(null, Metrics.Phase.WALK, start);
+        return files;
+    }
+    
+    /**
+     * Method that processes a list of vocabulary files 
+     * (see processRepositoryFolder).
+     * @param files
+     * @param threads
+     * @param manifest
+     * @return 
+     */
+    public static ArrayList<Vocabulary> processVocabularies(ArrayList<File> files, int threads, Manifest manifest){
+        final ArrayList<Vocabulary> vocabs = new ArrayList<>();
+        try{
+            processVocabularies(files, threads, manifest, new VocabularyHandler() {
+                @Override
+                public void handle(List<Vocabulary> batch) {
+                    vocabs.addAll(batch);
+                }
+            });
+        }catch(IOException e){
+            //not thrown by the handler
         }
         return vocabs;
     }
     
-    private static void getVocabList(File dir, ArrayList<Vocabulary> vocabs){
-        for (File f:dir.listFiles()){
+    /**
+     * Method that processes a list of vocabulary files and sends the 
+     * vocabularies to a handler in small batches, in the order of the files.
+     * Only a few vocabularies are kept in memory at the same time: the 
+     * vocabularies being parsed (a bounded number of them per worker) and 
+     * the current batch.
+     * @param files
+     * @param threads number of workers used to parse the vocabularies
+     * @param manifest manifest of a previous run (may be null). The entries
+     * of the vocabularies are added to it once they have been handled.
+     * @param handler
+     * @throws IOException if the handler fails
+     */
+    public static void processVocabularies(ArrayList<File> files, int threads, Manifest manifest, VocabularyHandler handler) throws IOException{
+        Batch batch = new Batch(handler, manifest);
+        //entries of the vocabs that have not changed since the last run
+        ArrayList<Manifest.Entry> unchanged = new ArrayList<>();
+        int toProcess = 0;
+        for(File f:files){
+            Manifest.Entry e = manifest == null? null : manifest.getUnchangedEntry(f);
+            unchanged.add(e);
+            if(e == null){
+                toProcess++;
+            }
+        }
+        if(threads > 1 && toProcess > 1){
+            processVocabsInParallel(files, unchanged, batch, threads, manifest != null);
+        }else{
+            for(int i=0; i<files.size(); i++){
+                processVocab(files.get(i), unchanged.get(i), batch, manifest != null);
+            }
+        }
+        batch.flush();
+    }
+    
+    private static void getVocabList(File dir, ArrayList<File> files){
+        File[] list = dir.listFiles();
+        if(list == null){
+            return;
+        }
+        for (File f:list){
             if(f.isDirectory()){
-                getVocabList(f, vocabs);
+                getVocabList(f, files);
             }else{
-                //we only admit .ttl, .rdf, .owl, .xml, .rdfs
-                String p = f.getAbsolutePath();
-                if(p.endsWith(".owl")||p.endsWith(".rdf")||p.endsWith(".ttl")||p.endsWith(".xml")||p.endsWith(".rdfs")){
-                    processVocab(f, vocabs);
+                if(isVocabularyFile(f.getAbsolutePath())){
+                    files.add(f);
                     //System.out.println(p);
                 }
             }
@@ -42,34 +144,190 @@ public class ProcessRepository {
         
     }
     
+    /**
+     * We only admit .ttl, .rdf, .owl, .xml, .rdfs
+     * @param p path of the file
+     * @return 
+     */
+    static boolean isVocabularyFile(String p){
+        return p.endsWith(".owl")||p.endsWith(".rdf")||p.endsWith(".ttl")||p.endsWith(".xml")||p.endsWith(".rdfs");
+    }
+    
     /**
      * Method that given a path of a vocab, it processes and adds it to the
-     * arrayList send as reference.
+     * batch send as reference.
      * @param vocab 
-     * @param vocabs 
+     * @param unchanged entry of the vocab in the manifest if it has not changed (null otherwise)
+     * @param batch 
+     * @param hash whether the hash of the file has to be computed (for the manifest)
      */
-    private static void processVocab(File vocab, ArrayList<Vocabulary> vocabs){
+    private static void processVocab(File vocab, Manifest.Entry unchanged, Batch batch, boolean hash) throws IOException{
+        if(unchanged != null){
+            registerUnchangedVocab(vocab, unchanged, batch);
+            return;
+        }
+        Manifest.Entry e;
         try{
-            System.out.println("\nDealing with Vocabulary "+vocab.getName());
-            Vocabulary v = VocabUtils.getVocabularyMetadata(vocab);
-            if(v!=null){
-                 vocabs.add(v);
-                if(v.getDescription()!=null && !v.getDescription().equals("") &&
-                        v.getTitle()!=null && !v.getTitle().equals("")){
-                    Report.getInstance().addSuccessfulEntry(v.getUri());
-                }else{
-                    Report.getInstance().addWarningForVocab(v.getUri(), TextConstants.Warning.MISSING_TITLE_OR_DESC_FOR_VOCAB);
+            e = loadVocab(vocab, hash);
+        }
+        catch(Exception ex){
+            registerFailedVocab(vocab, ex);
+            return;
+        }
+        registerVocab(vocab, e, batch);
+    }
+    
+    /**
+     * Method that parses the vocabularies in a pool of workers. Results are 
+     * collected in the order of the list of files, so the output does not 
+     * depend on which worker finishes first. At most 
+     * TextConstants.parsingWindow vocabularies per worker are parsed ahead
+     * of the one being collected.
+     * @param files
+     * @param unchanged
+     * @param batch
+     * @param threads 
+     * @param hash whether the hash of the files has to be computed (for the manifest)
+     */
+    private static void processVocabsInParallel(ArrayList<File> files, ArrayList<Manifest.Entry> unchanged, 
+            Batch batch, int threads, final boolean hash) throws IOException{
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        int window = threads*TextConstants.parsingWindow;
+        try{
+            ArrayDeque<Future<Manifest.Entry>> results = new ArrayDeque<>();
+            int submitted = 0;
+            for(int i=0; i<files.size(); i++){
+                //parse ahead the next files
+                for(; submitted<files.size() && results.size()<window; submitted++){
+                    if(unchanged.get(submitted) == null){
+                        final File f = files.get(submitted);
+                        results.add(pool.submit(new Callable<Manifest.Entry>() {
+                            @Override
+                            public Manifest.Entry call() throws Exception {
+                                return loadVocab(f, hash);
+                            }
+                        }));
+                    }
+                }
+                File f = files.get(i);
+                if(unchanged.get(i) != null){
+                    registerUnchangedVocab(f, unchanged.get(i), batch);
+                    continue;
                 }
+                Manifest.Entry e;
+                try{
+                    e = results.poll().get();
+                }catch(ExecutionException ex){
+                    Throwable cause = ex.getCause();
+                    registerFailedVocab(f, cause instanceof Exception? (Exception)cause : ex);
+                    continue;
+                }catch(InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    registerFailedVocab(f, ex);
+                    break;
+                }
+                registerVocab(f, e, batch);
+            }
+        }finally{
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Parses a vocabulary and extracts its metadata.
+     * @param vocab
+     * @param hash whether the hash of the file has to be computed (for the manifest)
+     * @return 
+     */
+    private static Manifest.Entry loadVocab(File vocab, boolean hash){
+        System.out.println("\nDealing with Vocabulary "+vocab.getName());
+        Report.getInstance().clearThreadWarnings();
+        Vocabulary v = VocabUtils.getVocabularyMetadata(vocab);
+        if(v != null){
+            v.reportUnknownLanguages();
+        }
+        ArrayList<Warning> warnings = Report.getInstance().takeThreadWarnings();
+        if(hash){
+            return Manifest.Entry.create(vocab, v, warnings);
+        }
+        return new Manifest.Entry(vocab.getAbsolutePath(), vocab.length(), vocab.lastModified(), null, v, warnings);
+    }
+    
+    private static void registerUnchangedVocab(File vocab, Manifest.Entry e, Batch batch) throws IOException{
+        System.out.println("\nVocabulary "+vocab.getName()+" has not changed since the last run");
+        Vocabulary v = e.getVocabulary();
+        if(v != null){
+            v.resetPhaseTimes();
+        }
+        //the warnings found when the vocab was processed
+        for(Warning w:e.getWarnings()){
+            Report.getInstance().addWarningForVocab(v.getUri(), w);
+        }
+        registerVocab(vocab, e, batch);
+    }
+    
+    private static void registerVocab(File vocab, Manifest.Entry e, Batch batch) throws IOException{
+        Vocabulary v = e.getVocabulary();
+        if(v!=null){
+            if(v.getSupportedSerializations()!=null){
+                Report.getInstance().addParsingDetails(v.getUri(), v.getSupportedSerializations().get(0), v.getParsingTime());
+            }
+            if(v.getDescription()!=null && !v.getDescription().equals("") &&
+                    v.getTitle()!=null && !v.getTitle().equals("")){
+                Report.getInstance().addSuccessfulEntry(v.getUri());
             }else{
-                Report.getInstance().addErrorForVocab(v.getUri(), TextConstants.Error.PARSING_ERR);
+                Report.getInstance().addWarningForVocab(v.getUri(), TextConstants.Warning.MISSING_TITLE_OR_DESC_FOR_VOCAB);
             }
+            batch.add(e);
+        }else{
+            Report.getInstance().addErrorForVocab(vocab.getName(), TextConstants.Error.PARSING_ERR);
         }
-        catch(Exception e){
-            System.out.println("Error while dealing with vocab: "+vocab.getName()+" "+e.getMessage());
-            Report.getInstance().addErrorForVocab(vocab.getName(), TextConstants.Error.EXCEPTION_ERROR);
-            //e.printStackTrace();
+    }
+    
+    private static void registerFailedVocab(File vocab, Exception e){
+        System.out.println("Error while dealing with vocab: "+vocab.getName()+" "+e.getMessage());
+        Report.getInstance().addErrorForVocab(vocab.getName(), TextConstants.Error.EXCEPTION_ERROR);
+        //e.printStackTrace();
+    }
+    
+    /**
+     * Vocabularies waiting to be sent to the handler.
+     */
+    private static class Batch{
+        private final VocabularyHandler handler;
+        private final Manifest manifest;
+        private final ArrayList<Manifest.Entry> entries;
+        private final ArrayList<Vocabulary> vocabs;
+
+        Batch(VocabularyHandler handler, Manifest manifest) {
+            this.handler = handler;
+            this.manifest = manifest;
+            this.entries = new ArrayList<>();
+            this.vocabs = new ArrayList<>();
         }
-       }
+
+        void add(Manifest.Entry e) throws IOException{
+            entries.add(e);
+            vocabs.add(e.getVocabulary());
+            if(entries.size() == TextConstants.vocabularyBatchSize){
+                flush();
+            }
+        }
+
+        void flush() throws IOException{
+            if(entries.isEmpty()){
+                return;
+            }
+            handler.handle(vocabs);
+            if(manifest != null){
+                for(Manifest.Entry e:entries){
+                    manifest.add(e);
+                }
+            }
+            entries.clear();
+            vocabs.clear();
+        }
+    }
     
 //    public static void main(String[] args){
 //        //processCSV(ProcessCSVFile.class.getResource("/vocab/test.csv").getPath());
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import oeg.vocablite.TextConstants.PublishMode;
+
+/**
+ * Class that publishes the vocabulary files in the ontologies folder of the
+ * site. Files are copied (with a channel transfer), hard linked or 
+ * symbolically linked, in background threads, so publishing overlaps with
+ * the creation of the pages. Files already published are skipped, and the
+ * rest are written with a temporary name and moved over the previous ones,
+ * so a served site never has a missing or half-written file.
+ * Only a few files wait to be published: if all the threads are busy, the
+ * file is published by the thread that submits it. Files of different 
+ * folders of the repository with the same name are published with different
+ * names (see reserveName).
+ * @author dgarijo
+ */
+public class Publisher {
+    private final File folder;
+    private final PublishMode mode;
+    private final ExecutorService pool;
+    //name of the published files -> path of the source (see reserveName)
+    private final HashMap<String, String> names;
+
+    /**
+     * @param folder folder where the vocabularies are published
+     * @param mode how the files are published
+     * @param threads number of threads
+     */
+    public Publisher(File folder, PublishMode mode, int threads) {
+        this.folder = folder;
+        this.mode = mode;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, 
+                new ArrayBlockingQueue<Runnable>(threads*TextConstants.parsingWindow), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.names = new HashMap<>();
+        folder.mkdirs();
+    }
+
+    /**
+     * Sets the name of the published file of a vocabulary (before its row is
+     * written). It is the name of its file, unless another file of the 
+     * repository with the same name has already been published in this run:
+     * then a short hash of its path is added to the name.
+     * @param v 
+     */
+    public void reserveName(Vocabulary v){
+        if(v.getSupportedSerializations() == null || v.getVocabPath() == null){
+            return;
+        }
+        String path = v.getVocabPath();
+        String name = new File(path).getName();
+        synchronized(names){
+            String previous = names.get(name);
+            if(previous != null && !previous.equals(path)){
+                int dot = name.lastIndexOf('.');
+                String hash = String.format("%08x", path.hashCode());
+                name = dot > 0 ? name.substring(0, dot)+"-"+hash+name.substring(dot) : name+"-"+hash;
+                System.out.println(path+" is published as "+name+" ("+previous+" has the same name)");
+            }
+            names.put(name, path);
+        }
+        v.setName(name);
+    }
+
+    /**
+     * Publishes the file of a vocabulary (in the background). Publishing is 
+     * the last phase of a vocabulary, so its times are added to the report
+     * once it has been published.
+     * @param v 
+     */
+    public void submit(final Vocabulary v){
+        if(v.getSupportedSerializations() == null || v.getVocabPath() == null){
+            Report.getInstance().addPhaseTimes(v);
+            return;
+        }
+        pool.submit(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                publish(new File(v.getVocabPath()), new File(folder, v.getName()), mode);
+                Metrics.getInstance().record(v, Metrics.Phase.PUBLISH, start);
+                Report.getInstance().addPhaseTimes(v);
+            }
+        });
+    }
+
+    /**
+     * Waits until all the files have been published.
+     */
+    public void close(){
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            System.err.println("Interrupted while publishing the vocabularies");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Publishes a file. If the destination already has the same content (or 
+     * is already a link to the file), nothing is done. If a link cannot be 
+     * created (e.g., different file systems), the file is copied. The copy 
+     * or link is created in the same folder with a temporary name and then 
+     * replaces the destination (atomically when the file system allows it).
+     * @param src
+     * @param dest
+     * @param mode 
+     */
+    public static void publish(File src, File dest, PublishMode mode){
+        File tmp = new File(dest.getParentFile(), dest.getName()+".tmp");
+        try{
+            Path s = src.toPath();
+            Path d = dest.toPath();
+            boolean isLink = Files.isSymbolicLink(d);
+            if(Files.exists(d) && Files.isSameFile(s, d)){
+                if((mode == PublishMode.SYMLINK && isLink) || (mode == PublishMode.HARDLINK && !isLink)){
+                    return;
+                }
+            }else if(mode == PublishMode.COPY && !isLink && isCopy(src, dest)){
+                return;
+            }
+            Path t = tmp.toPath();
+            Files.deleteIfExists(t);
+            switch(mode){
+                case HARDLINK:
+                    try{
+                        Files.createLink(t, s);
+                        replace(tmp, dest);
+                        return;
+                    }catch(IOException | UnsupportedOperationException e){
+                        //the copy must not be written through a link to the source
+                        Files.deleteIfExists(t);
+                        System.err.println("Could not link "+src.getName()+", copying it instead: "+e.getMessage());
+                    }
+                    break;
+                case SYMLINK:
+                    try{
+                        Files.createSymbolicLink(t, s.toAbsolutePath());
+                        replace(tmp, dest);
+                        return;
+                    }catch(IOException | UnsupportedOperationException e){
+                        Files.deleteIfExists(t);
+                        System.err.println("Could not link "+src.getName()+", copying it instead: "+e.getMessage());
+                    }
+                    break;
+            }
+            copy(src, tmp);
+            replace(tmp, dest);
+        }catch(Exception e){
+            System.err.println("Exception while publishing "+src.getPath()+" "+e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    private static void replace(File tmp, File f) throws IOException{
+        try{
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch(AtomicMoveNotSupportedException e){
+            Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The destination has the same size and content as the source. Copies 
+     * keep the date of the source, so the hash is only compared when the 
+     * dates differ.
+     */
+    private static boolean isCopy(File src, File dest) throws Exception{
+        if(!dest.exists() || dest.length() != src.length()){
+            return false;
+        }
+        if(dest.lastModified() == src.lastModified()){
+            return true;
+        }
+        if(MD5.MD5(src).equals(MD5.MD5(dest))){
+            dest.setLastModified(src.lastModified());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies a file with a channel transfer (without copying the bytes into
+     * the heap).
+     * @param src
+     * @param dest
+     * @throws IOException 
+     */
+    public static void copy(File src, File dest) throws IOException{
+        FileInputStream in = new FileInputStream(src);
+        try{
+            FileOutputStream out = new FileOutputStream(dest);
+            try{
+                FileChannel from = in.getChannel();
+                FileChannel to = out.getChannel();
+                long size = from.size();
+                long position = 0;
+                while(position < size){
+                    position += from.transferTo(position, size-position, to);
+                }
+            }finally{
+                out.close();
+            }
+        }finally{
+            in.close();
+        }
+        Files.setLastModifiedTime(dest.toPath(), FileTime.fromMillis(src.lastModified()));
+    }
+
+}
@@ -47,7 +47,42 @@ public class Queries {
             return vocabInLOV;
         }
         
+        /**
+         * Query to retrieve the prefix of several vocabularies in LOV at once.
+         * URIs are matched exactly (no regex), so the endpoint can use its indexes.
+         * @param uris
+         * @return 
+         */
+        public static String vocabsInLOV(java.util.Collection<String> uris){
+            StringBuilder values = new StringBuilder();
+            for(String uri:uris){
+                values.append("<").append(uri).append("> ");
+            }
+            String vocabsInLOV = "SELECT ?vocabURI ?vocabPrefix { " +
+			"GRAPH <http://lov.okfn.org/dataset/lov>{ " +
+			"VALUES ?vocabURI { "+values+"}" +
+			"?vocabURI a <http://purl.org/vocommons/voaf#Vocabulary>." +
+			"?vocabURI <http://purl.org/vocab/vann/preferredNamespacePrefix> ?vocabPrefix.}}";
+            return vocabsInLOV;
+        }
+        
         public static final String languagesUsed = "SELECT distinct (lang(?lang) as ?langUsed) WHERE { ?thing ?property ?lang}";
+        
+        /**
+         * Prefixes added to the queries of the catalog store (see CatalogQuery).
+         */
+        public static final String catalogPrefixes = prefixes +
+                        "PREFIX voaf:<http://purl.org/vocommons/voaf#>" +
+                        "PREFIX report:<"+TextConstants.reportNS+">\n";
+        
+        /**
+         * Default query of CatalogQuery: the vocabularies of the catalog.
+         */
+        public static final String catalogVocabularies = "SELECT ?vocab ?title ?prefix ?license ?file WHERE { GRAPH ?g { " +
+                        "?vocab a voaf:Vocabulary; report:publishedFile ?file. " +
+                        "OPTIONAL {?vocab dcterms:title ?title} " +
+                        "OPTIONAL {?vocab vann:preferredNamespacePrefix ?prefix} " +
+                        "OPTIONAL {?vocab dcterms:license ?license}}} ORDER BY ?title ?file";
 
 
 //	public static String vocabInLOV = "PREFIX rdf:<http://www.w3.org/1999/02/22-rdf-syntax-ns#>" +
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Scanner of the header of RDF/XML vocabularies. The document is read with a
+ * pull parser (StAX) until the end of the first bytes of the document (the
+ * sample) once the element that declares the owl:Ontology has been read,
+ * without building any triple but the ones of the header (as in
+ * OntologyHeaderSink). The language tags are estimated from the literals of
+ * the sample. Only the descriptions at the top of the document are looked
+ * at, and the descriptions of the ontology after the sample are not seen.
+ * When the header uses constructs that the scanner does not handle (blank
+ * nodes, XML literals, relative URIs without xml:base), or there are more
+ * than TextConstants.headerCandidatesLimit header properties of other
+ * subjects before the ontology, scan() returns false and the whole document
+ * has to be parsed.
+ * @author dgarijo
+ */
+public class RDFXMLHeaderScanner {
+    private static final String RDF_NS = RDF.getURI();
+    private static final String ONTOLOGY = OWL.Ontology.getURI();
+    private static final XMLInputFactory factory = createFactory();
+
+    private final long sample;
+    private List<Triple> header;
+    private Node ontology;
+    private LinkedHashSet<String> languages;
+
+    /**
+     * @param sample number of characters of the document where the language
+     * tags are looked for (0 for the whole document).
+     */
+    public RDFXMLHeaderScanner(long sample) {
+        this.sample = sample;
+    }
+
+    private static XMLInputFactory createFactory(){
+        XMLInputFactory f = XMLInputFactory.newInstance();
+        f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        f.setProperty(XMLInputFactory.IS_COALESCING, true);
+        //entities of the internal DTD are used to abbreviate URIs, external ones are not loaded
+        f.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+        f.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        f.setXMLResolver(new XMLResolver() {
+            @Override
+            public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+        });
+        return f;
+    }
+
+    /**
+     * Reads the header of the ontology of a document.
+     * @param in RDF/XML document (not closed)
+     * @return true if the header has been found, false if the document has
+     * no owl:Ontology at the top or the header has to be read by a full parser.
+     * @throws XMLStreamException if the document is not well formed
+     */
+    public boolean scan(InputStream in) throws XMLStreamException{
+        header = null;
+        ontology = null;
+        languages = new LinkedHashSet<>();
+        XMLStreamReader r = factory.createXMLStreamReader(in);
+        try{
+            return scan(r);
+        }finally{
+            r.close();
+        }
+    }
+
+    private boolean scan(XMLStreamReader r) throws XMLStreamException{
+        ArrayDeque<Element> open = new ArrayDeque<>();
+        //header properties of the subjects seen before the ontology
+        HashMap<Node, List<Triple>> candidates = new HashMap<>();
+        int candidateTriples = 0;
+        //depth of the descriptions at the top of the document
+        int top = 1;
+        Description description = null;
+        Element property = null;
+        while(r.hasNext()){
+            int event = r.next();
+            if(event == XMLStreamConstants.START_ELEMENT){
+                boolean inSample = sample <= 0 || r.getLocation().getCharacterOffset() < sample;
+                if(header != null && !inSample){
+                    return true;
+                }
+                Element parent = open.peek();
+                Element e = new Element(r, parent);
+                if(parent != null){
+                    parent.children = true;
+                }
+                open.push(e);
+                if(open.size() == 1 && RDF_NS.equals(e.namespace) && "RDF".equals(e.localName)){
+                    top = 2;
+                }else if(open.size() == top){
+                    description = new Description(r, e);
+                    if(header != null && !ontology.equals(description.subject)){
+                        //only the descriptions of the ontology are read after its header
+                        description = null;
+                    }
+                }else if(open.size() == top+1 && description != null){
+                    property = e;
+                    if(!description.readPropertyStart(r, e)){
+                        return false;
+                    }
+                }else if(open.size() == top+2 && property != null && description != null){
+                    //object of the property described in place
+                    property.object = e.resolve(r.getAttributeValue(RDF_NS, "about"));
+                }
+                if(inSample){
+                    e.readPropertyAttributes(r, languages);
+                }
+            }else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA){
+                Element e = open.peek();
+                if(e != null && e == property && e.text != null){
+                    e.text.append(r.getText());
+                }
+            }else if(event == XMLStreamConstants.END_ELEMENT){
+                Element e = open.pop();
+                //plain literals are in properties, every other level of the document
+                boolean isProperty = (open.size()+1-top)%2 == 1;
+                if(isProperty && !e.children && e.isLiteral() && e.lang != null && !e.lang.isEmpty()
+                        && (sample <= 0 || r.getLocation().getCharacterOffset() < sample)){
+                    languages.add(e.lang);
+                }
+                if(e == property){
+                    if(!description.readPropertyEnd(e)){
+                        return false;
+                    }
+                    property = null;
+                }else if(description != null && e == description.element){
+                    if(header != null){
+                        //another description of the ontology
+                        header.addAll(description.header);
+                    }else if(description.ontology){
+                        ontology = description.subject;
+                        header = new ArrayList<>();
+                        List<Triple> seen = candidates.get(description.subject);
+                        if(seen != null){
+                            header.addAll(seen);
+                        }
+                        header.addAll(description.header);
+                        candidates = null;
+                    }else if(!description.header.isEmpty()){
+                        candidateTriples += description.header.size();
+                        if(candidateTriples > TextConstants.headerCandidatesLimit){
+                            return false;
+                        }
+                        List<Triple> l = candidates.get(description.subject);
+                        if(l == null){
+                            l = new ArrayList<>();
+                            candidates.put(description.subject, l);
+                        }
+                        l.addAll(description.header);
+                    }
+                    description = null;
+                }
+            }
+        }
+        return header != null;
+    }
+
+    /**
+     * @return the triples of the header of the ontology, in document order.
+     */
+    public List<Triple> getHeader() {
+        return header;
+    }
+
+    /**
+     * @return language tags used in the literals of the sample, in order of appearance.
+     */
+    public ArrayList<String> getLanguages() {
+        ArrayList<String> l = new ArrayList<>();
+        for(String lang:languages){
+            l.add(Languages.intern(lang));
+        }
+        return l;
+    }
+
+    /**
+     * Element of the document, with the xml:lang and xml:base in scope.
+     */
+    private static class Element{
+        final String namespace;
+        final String localName;
+        final String lang;
+        final String base;
+        final boolean resource;
+        final String datatype;
+        boolean children;
+        StringBuilder text;
+        //URI of the object of a property (rdf:resource or the description inside it)
+        String object;
+
+        Element(XMLStreamReader r, Element parent){
+            namespace = r.getNamespaceURI();
+            localName = r.getLocalName();
+            String l = r.getAttributeValue(XMLConstants.XML_NS_URI, "lang");
+            lang = l != null ? l : (parent != null ? parent.lang : null);
+            String b = r.getAttributeValue(XMLConstants.XML_NS_URI, "base");
+            base = b != null ? b : (parent != null ? parent.base : null);
+            resource = r.getAttributeValue(RDF_NS, "resource") != null || r.getAttributeValue(RDF_NS, "nodeID") != null
+                    || r.getAttributeValue(RDF_NS, "about") != null || r.getAttributeValue(RDF_NS, "parseType") != null;
+            datatype = r.getAttributeValue(RDF_NS, "datatype");
+        }
+
+        /**
+         * @return whether the element may be a property with a plain literal.
+         */
+        boolean isLiteral(){
+            return !resource && datatype == null;
+        }
+
+        /**
+         * Adds the language of the property attributes (plain literals).
+         */
+        void readPropertyAttributes(XMLStreamReader r, LinkedHashSet<String> languages){
+            if(lang == null || lang.isEmpty()){
+                return;
+            }
+            for(int i = 0; i < r.getAttributeCount(); i++){
+                if(isPropertyAttribute(r, i)){
+                    languages.add(lang);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @param uri
+         * @return the uri resolved against the xml:base in scope, or null if
+         * it is relative and there is no base.
+         */
+        String resolve(String uri){
+            if(uri == null){
+                return null;
+            }
+            try{
+                if(new URI(uri).isAbsolute()){
+                    return uri;
+                }
+                if(base != null){
+                    return new URI(base).resolve(uri).toString();
+                }
+            }catch(URISyntaxException | IllegalArgumentException e){
+                //not resolved
+            }
+            return null;
+        }
+    }
+
+    private static boolean isPropertyAttribute(XMLStreamReader r, int i){
+        String ns = r.getAttributeNamespace(i);
+        return ns != null && !ns.isEmpty() && !ns.equals(RDF_NS) && !ns.equals(XMLConstants.XML_NS_URI);
+    }
+
+    /**
+     * Description at the top of the document, with its header properties.
+     */
+    private static class Description{
+        final Element element;
+        final Node subject;
+        boolean ontology;
+        final ArrayList<Triple> header;
+
+        Description(XMLStreamReader r, Element e){
+            element = e;
+            header = new ArrayList<>();
+            String about = e.resolve(r.getAttributeValue(RDF_NS, "about"));
+            if(about == null){
+                about = r.getAttributeValue(RDF_NS, "about");
+            }
+            String id = r.getAttributeValue(RDF_NS, "ID");
+            if(about != null){
+                subject = NodeFactory.createURI(about);
+            }else if(id != null && e.base != null){
+                subject = NodeFactory.createURI(e.base+"#"+id);
+            }else{
+                subject = NodeFactory.createAnon();
+            }
+            ontology = ONTOLOGY.equals(e.namespace+e.localName) || ONTOLOGY.equals(e.resolve(r.getAttributeValue(RDF_NS, "type")));
+            for(int i = 0; i < r.getAttributeCount(); i++){
+                if(isPropertyAttribute(r, i) && OntologyHeaderSink.headerProperties.contains(r.getAttributeLocalName(i))){
+                    header.add(new Triple(subject, NodeFactory.createURI(r.getAttributeNamespace(i)+r.getAttributeLocalName(i)),
+                            NodeFactory.createLiteral(r.getAttributeValue(i), e.lang == null ? "" : e.lang, false)));
+                }
+            }
+        }
+
+        /**
+         * @return false if the property cannot be read by the scanner.
+         */
+        boolean readPropertyStart(XMLStreamReader r, Element e){
+            if(RDF_NS.equals(e.namespace) && "type".equals(e.localName)){
+                ontology |= ONTOLOGY.equals(e.resolve(r.getAttributeValue(RDF_NS, "resource")));
+                return true;
+            }
+            if(!OntologyHeaderSink.headerProperties.contains(e.localName)){
+                return true;
+            }
+            if(r.getAttributeValue(RDF_NS, "parseType") != null || r.getAttributeValue(RDF_NS, "nodeID") != null){
+                return false;
+            }
+            for(int i = 0; i < r.getAttributeCount(); i++){
+                if(isPropertyAttribute(r, i)){
+                    //the object is a blank node
+                    return false;
+                }
+            }
+            String resource = r.getAttributeValue(RDF_NS, "resource");
+            if(resource != null){
+                e.object = e.resolve(resource);
+                return e.object != null;
+            }
+            e.text = new StringBuilder();
+            return true;
+        }
+
+        /**
+         * @return false if the property cannot be read by the scanner.
+         */
+        boolean readPropertyEnd(Element e){
+            if(!OntologyHeaderSink.headerProperties.contains(e.localName) || RDF_NS.equals(e.namespace)){
+                return true;
+            }
+            Node p = NodeFactory.createURI(e.namespace+e.localName);
+            Node o;
+            if(e.object != null){
+                o = NodeFactory.createURI(e.object);
+            }else if(e.children){
+                //blank node or relative URI
+                return false;
+            }else if(e.datatype != null){
+                o = NodeFactory.createLiteral(e.text.toString(), null, TypeMapper.getInstance().getSafeTypeByName(e.resolve(e.datatype)));
+            }else{
+                o = NodeFactory.createLiteral(e.text.toString(), e.lang == null ? "" : e.lang, false);
+            }
+            header.add(new Triple(subject, p, o));
+            return true;
+        }
+    }
+
+}
@@ -16,50 +16,91 @@
 package oeg.vocablite;
 
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
-import com.hp.hpl.jena.ontology.OntModel;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import oeg.vocablite.TextConstants.Warning;
 import oeg.vocablite.TextConstants.Error;
 
 /**
  * This class will log whther a vocabulary has failed or not.
  * Similar to a logger, but simplified.
+ * The report can be filled from several threads at the same time. The RDF 
+ * entries are written to disk as they are added (see ReportWriter), so no 
+ * RDF model is kept in memory.
  * @author Daniel Garijo
  */
 public class Report {
-    private static Report r;
-    private final OntModel reportModel;
+    private static volatile Report r;
+    private final Date creationDate;
     private final String date;
-    private final ArrayList<String> vocabsOk;
-    private final ArrayList<String> vocabsWithErrors;
-    private final ArrayList<String> vocabsWithWarnings;
-    private final HashMap<String, ArrayList<String>> vocabProblems;
+    //vocab -> order in which it was first seen
+    private final ConcurrentHashMap<String, Long> vocabsOk;
+    private final ConcurrentHashMap<String, Long> vocabsWithErrors;
+    private final ConcurrentHashMap<String, Long> vocabsWithWarnings;
+    private final ConcurrentHashMap<String, Queue<String>> vocabProblems;
+    private final AtomicLong sequence;
+    //warnings recorded by each thread (see takeThreadWarnings)
+    private final ThreadLocal<ArrayList<Warning>> localWarnings;
+    //entries and problems already written
+    private final Set<String> entries;
+    private final Set<String> problems;
+    private ReportWriter writer;
     
     protected Report(){
-        vocabsWithErrors = new ArrayList<>();
-        vocabsWithWarnings = new ArrayList<>();
-        vocabsOk = new ArrayList<>();
-        reportModel = ModelFactory.createOntologyModel(); 
-        vocabProblems = new HashMap<>();
+        vocabsWithErrors = new ConcurrentHashMap<>();
+        vocabsWithWarnings = new ConcurrentHashMap<>();
+        vocabsOk = new ConcurrentHashMap<>();
+        vocabProblems = new ConcurrentHashMap<>();
+        sequence = new AtomicLong();
+        localWarnings = new ThreadLocal<ArrayList<Warning>>(){
+            @Override
+            protected ArrayList<Warning> initialValue() {
+                return new ArrayList<>();
+            }
+        };
+        entries = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        problems = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
         //basic metadata
-        Date d = new Date(); 
-        date = ""+d.getTime();
-        VocabUtils.addIndividual(reportModel, "Report"+date, TextConstants.report, "Report created on "+d.toString());
-        VocabUtils.addDataProperty(reportModel, "Report"+date, d.toString(), TextConstants.reportDate, XSDDatatype.XSDdateTime);
+        creationDate = new Date(); 
+        date = ""+creationDate.getTime();
     }
     
         
     public static Report getInstance(){
         if(r == null){
-            r = new Report();
+            synchronized(Report.class){
+                if(r == null){
+                    r = new Report();
+                }
+            }
         }
         return r;        
     } 
 
+    /**
+     * Starts a new report (watch mode: the report is created again after 
+     * every change in the repository).
+     */
+    public static synchronized void reset(){
+        if(r != null){
+            r.localWarnings.remove();
+        }
+        r = new Report();
+    }
+
     public int getNumberOfVocabError() {
         return vocabsWithErrors.size();
     }
@@ -73,19 +114,14 @@ public class Report {
     }
     
     public void addSuccessfulEntry(String vocab){
-        vocabsOk.add(vocab);
-        String entryID = "Entry"+date+vocab.replace("/", "").replace(".", "").replace(":", "");
-        addEntryToReport(entryID, vocab);
-        VocabUtils.addProperty(reportModel, entryID, TextConstants.successStatus, TextConstants.vocabularyStatus);
+        long seq = sequence.getAndIncrement();
+        vocabsOk.putIfAbsent(vocab, seq);
+        addEvent(vocab, null, null, TextConstants.successStatus);
     }
     
     public void addWarningForVocab(String vocab, Warning w){
-        if(!vocabsWithWarnings.contains(vocab)){
-            vocabsWithWarnings.add(vocab);
-            vocabProblems.put(vocab, new ArrayList<String>());
-        }
-        String entryID = "Entry"+date+vocab.replace("/", "").replace(".", "").replace(":", "");
-        addEntryToReport(entryID, vocab);
+        long seq = sequence.getAndIncrement();
+        vocabsWithWarnings.putIfAbsent(vocab, seq);
         String warning = "";
         String warningLabel = "";
         switch (w){
@@ -111,21 +147,17 @@ public class Report {
                 break;   
         }
         if(!warning.equals("")){
-            VocabUtils.addIndividual(reportModel, warning, TextConstants.warning, warningLabel);
-            VocabUtils.addProperty(reportModel, entryID, warning, TextConstants.detectedProblem);
-            VocabUtils.addProperty(reportModel, entryID, TextConstants.warningStatus, TextConstants.vocabularyStatus);
-            vocabProblems.get(vocab).add(warningLabel);
-        }    
+            getProblems(vocab).add(warningLabel);
+            localWarnings.get().add(w);
+            addEvent(vocab, warning, warningLabel, TextConstants.warningStatus);
+        }else{
+            addEvent(vocab, null, null, null);
+        }
     }
     
     public void addErrorForVocab(String vocab, Error err){
-        if(!vocabsWithErrors.contains(vocab)){
-            vocabsWithErrors.add(vocab);
-            vocabProblems.put(vocab, new ArrayList<String>());
-        }
-        String entryID = "Entry"+date+vocab.replace("/", "").replace(".", "").replace(":", "");
-        //an entry, part of the report, about a vocabulary, has an error.
-        addEntryToReport(entryID, vocab);
+        long seq = sequence.getAndIncrement();
+        vocabsWithErrors.putIfAbsent(vocab, seq);
         String error = "";
         String errorLabel = "";
         switch (err){
@@ -146,19 +178,160 @@ public class Report {
                 errorLabel = "Error while parsing the vocabulary";
                 break;
         }
+        //an entry, part of the report, about a vocabulary, has an error.
         if(!error.equals("")){
-            VocabUtils.addIndividual(reportModel, error, TextConstants.error, errorLabel);
-            VocabUtils.addProperty(reportModel, entryID, error, TextConstants.detectedProblem);
-            VocabUtils.addProperty(reportModel, entryID, TextConstants.errorStatus, TextConstants.vocabularyStatus);
-            vocabProblems.get(vocab).add(errorLabel);
-        }    
+            getProblems(vocab).add(errorLabel);
+            addEvent(vocab, error, errorLabel, TextConstants.errorStatus);
+        }else{
+            addEvent(vocab, null, null, null);
+        }
+    }
+    
+    /**
+     * Records the time spent in each phase of the processing of a vocabulary
+     * (except parsing, see addParsingDetails).
+     * @param v 
+     */
+    public void addPhaseTimes(Vocabulary v){
+        try{
+            ReportWriter w = getWriter();
+            String entryID = addEntryToReport(w, v.getUri());
+            for(Map.Entry<Metrics.Phase, Long> t:v.getPhaseTimes().entrySet()){
+                String property = t.getKey().getReportProperty();
+                if(property != null && t.getKey() != Metrics.Phase.PARSE){
+                    w.addDataProperty(entryID, ""+(t.getValue()/1000000), property, XSDDatatype.XSDlong.getURI());
+                }
+            }
+        }catch(IOException e){
+            System.err.println("Error while writing the report: "+e.getMessage());
+        }
+    }
+    
+    /**
+     * Records the serialization in which a vocabulary was detected and 
+     * the time it took to parse it.
+     * @param vocab
+     * @param serialization
+     * @param time parsing time in milliseconds
+     */
+    public void addParsingDetails(String vocab, String serialization, long time){
+        try{
+            ReportWriter w = getWriter();
+            String entryID = addEntryToReport(w, vocab);
+            w.addDataProperty(entryID, serialization, TextConstants.detectedSerialization, null);
+            w.addDataProperty(entryID, ""+time, TextConstants.parsingTime, XSDDatatype.XSDlong.getURI());
+        }catch(IOException e){
+            System.err.println("Error while writing the report: "+e.getMessage());
+        }
+    }
+    
+    /**
+     * Discards the warnings recorded by the current thread, before it 
+     * processes a vocab (see takeThreadWarnings).
+     */
+    public void clearThreadWarnings(){
+        localWarnings.get().clear();
+    }
+    
+    /**
+     * Warnings recorded by the current thread since clearThreadWarnings. The
+     * list of the thread is emptied, so it does not grow with the vocabs it
+     * processes.
+     * @return 
+     */
+    public ArrayList<Warning> takeThreadWarnings(){
+        ArrayList<Warning> warnings = localWarnings.get();
+        ArrayList<Warning> taken = new ArrayList<>(warnings);
+        warnings.clear();
+        return taken;
+    }
+    
+    private Queue<String> getProblems(String vocab){
+        Queue<String> problems = vocabProblems.get(vocab);
+        if(problems == null){
+            Queue<String> newProblems = new ConcurrentLinkedQueue<>();
+            problems = vocabProblems.putIfAbsent(vocab, newProblems);
+            if(problems == null){
+                problems = newProblems;
+            }
+        }
+        return problems;
+    }
+    
+    /**
+     * Writes the report to a file as it is filled. If it is not called, the
+     * report is written to a temporary file until saveReport is called.
+     * @param path path of the report (without extension)
+     * @throws IOException 
+     */
+    public synchronized void open(String path) throws IOException{
+        if(writer == null){
+            writer = createWriter(new File(path+".ttl"));
+        }
+    }
+    
+    private synchronized ReportWriter getWriter() throws IOException{
+        if(writer == null){
+            File tmp = File.createTempFile("report", ".ttl");
+            tmp.deleteOnExit();
+            writer = createWriter(tmp);
+        }
+        return writer;
+    }
+    
+    private ReportWriter createWriter(File f) throws IOException{
+        ReportWriter w = new ReportWriter(f);
+        w.addIndividual("Report"+date, TextConstants.report, "Report created on "+creationDate.toString());
+        w.addDataProperty("Report"+date, creationDate.toString(), TextConstants.reportDate, XSDDatatype.XSDdateTime.getURI());
+        return w;
+    }
+    
+    private void addEvent(String vocab, String problem, String problemLabel, String status){
+        try{
+            ReportWriter w = getWriter();
+            String entryID = addEntryToReport(w, vocab);
+            if(problem != null){
+                if(problems.add(problem)){
+                    String problemClass = TextConstants.warningStatus.equals(status)? TextConstants.warning : TextConstants.error;
+                    w.addIndividual(problem, problemClass, problemLabel);
+                }
+                w.addProperty(entryID, problem, TextConstants.detectedProblem);
+            }
+            if(status != null){
+                w.addProperty(entryID, status, TextConstants.vocabularyStatus);
+            }
+        }catch(IOException e){
+            System.err.println("Error while writing the report: "+e.getMessage());
+        }
     }
     
-    private void addEntryToReport(String entryID, String vocab){
-        VocabUtils.addIndividual(reportModel, entryID, TextConstants.entry, "Entry for vocab "+vocab);
-        VocabUtils.addProperty(reportModel, entryID, "Report"+date, TextConstants.isEntryOfReport);
-        VocabUtils.addProperty(reportModel, "Report"+date, entryID, TextConstants.hasEntry);
-        VocabUtils.addProperty(reportModel, entryID, vocab, TextConstants.entrySubject);
+    /**
+     * Writes the entry of a vocabulary (only the first time).
+     * @return the id of the entry
+     */
+    private String addEntryToReport(ReportWriter w, String vocab) throws IOException{
+        String entryID = "Entry"+date+vocab.replace("/", "").replace(".", "").replace(":", "");
+        if(entries.add(entryID)){
+            w.addIndividual(entryID, TextConstants.entry, "Entry for vocab "+vocab);
+            w.addProperty(entryID, "Report"+date, TextConstants.isEntryOfReport);
+            w.addProperty("Report"+date, entryID, TextConstants.hasEntry);
+            w.addProperty(entryID, vocab, TextConstants.entrySubject);
+        }
+        return entryID;
+    }
+    
+    /**
+     * Returns the vocabs of a map sorted by the order in which they were added.
+     */
+    private static List<String> sortedVocabs(final Map<String, Long> vocabs){
+        ArrayList<String> sorted = new ArrayList<>(vocabs.keySet());
+        Collections.sort(sorted, new Comparator<String>() {
+            @Override
+            public int compare(String o1, String o2) {
+                return vocabs.get(o1).compareTo(vocabs.get(o2));
+            }
+        });
+        return sorted;
     }
     
     /**
@@ -166,65 +339,79 @@ public class Report {
      * @return 
      */
     public String htmlSerialization(){
-        String html = TextConstants.getheader("Vocabulary report")+TextConstants.navBarReport + TextConstants.tableHeadReport;
+        StringBuilder html = new StringBuilder();
+        html.append(TextConstants.getheader("Vocabulary report")).append(TextConstants.navBarReport).append(TextConstants.tableHeadReport);
         //first the vocabs that failed
-        for(String err:vocabsWithErrors){
-            html+= addEntryRowHTML(err, "error", vocabProblems.get(err));
+        for(String err:sortedVocabs(vocabsWithErrors)){
+            addEntryRowHTML(html, err, "error", vocabProblems.get(err));
         }
         //then vocabs with warnings
-        for(String warning:vocabsWithWarnings){
-            if(!vocabsWithErrors.contains(warning)){
-                html+=addEntryRowHTML(warning, "warning", vocabProblems.get(warning));
+        for(String warning:sortedVocabs(vocabsWithWarnings)){
+            if(!vocabsWithErrors.containsKey(warning)){
+                addEntryRowHTML(html, warning, "warning", vocabProblems.get(warning));
             }
         }
         //then all vocabs ok
-        for(String ok:vocabsOk){
-            if(!vocabsWithWarnings.contains(ok)){
-                html+=addEntryRowHTML(ok, "success", null);
+        for(String ok:sortedVocabs(vocabsOk)){
+            if(!vocabsWithWarnings.containsKey(ok)){
+                addEntryRowHTML(html, ok, "success", null);
             }
         }
-        html+=TextConstants.tableEnd+ TextConstants.end+ "  </body>\n" +
-                "</html>\n";
-        return html;
+        html.append(TextConstants.tableEnd).append(TextConstants.end).append("  </body>\n" +
+                "</html>\n");
+        return html.toString();
     }
     
-    private String addEntryRowHTML(String v, String status, ArrayList<String> errors){
+    private void addEntryRowHTML(StringBuilder rowHtml, String v, String status, Queue<String> errors){
         String vocab = v;
         if(!vocab.startsWith("http")){
             try{
                 vocab = vocab.substring(vocab.lastIndexOf(File.separator)+1, vocab.length());
             }catch(Exception e){}
         }
-        String rowHtml = "  <tr>\n" +
-        "<td><a href = \""+v+"\" target=\"_blank\">"+vocab+"</a></td>\n" +
-        "<td>\n";
+        rowHtml.append("  <tr>\n" +
+        "<td><a href = \"").append(v).append("\" target=\"_blank\">").append(vocab).append("</a></td>\n" +
+        "<td>\n");
         if(errors == null || errors.isEmpty()){
-            rowHtml+="<span class=\"label label-success\">Sucess</span>\n</td>\n" +
+            rowHtml.append("<span class=\"label label-success\">Sucess</span>\n</td>\n" +
             "<td>No errors</td>\n" +
-            "</tr>\n"; 
-            return rowHtml;
+            "</tr>\n"); 
+            return;
         }else if(status.equals("warning")){
-            rowHtml+="<span class=\"label label-warning\">Warning</span>\n";
+            rowHtml.append("<span class=\"label label-warning\">Warning</span>\n");
         }else{//error
-            rowHtml+= "<span class=\"label label-danger\">Error</span>\n";
+            rowHtml.append("<span class=\"label label-danger\">Error</span>\n");
         }       
-        rowHtml+= "</td>\n" +
-        "<td>";
+        rowHtml.append("</td>\n" +
+        "<td>");
         for(String error:errors){
-            rowHtml+=error+"; ";
+            rowHtml.append(error).append("; ");
         }
-        rowHtml+= "</td>\n" +
-        "</tr>\n"; 
-        return rowHtml;
+        rowHtml.append("</td>\n" +
+        "</tr>\n");
     }
    
+    /**
+     * Method that saves the report (html and ttl). It must be called once all 
+     * the threads filling the report have finished.
+     * @param path 
+     */
     public void saveReport(String path){
-        //add the last metadata: number of errors, warnings, etc.
-        VocabUtils.addDataProperty(reportModel, "Report"+date, ""+this.getNumberOfVocabsOk(), TextConstants.numberVocabsOK);
-        VocabUtils.addDataProperty(reportModel, "Report"+date, ""+this.getNumberOfVocabError(), TextConstants.numberVocabsError);
-        VocabUtils.addDataProperty(reportModel, "Report"+date, ""+this.getNumberOfVocabWarning(), TextConstants.numberVocabsWarning);
+        try{
+            ReportWriter w = getWriter();
+            //add the last metadata: number of errors, warnings, etc.
+            w.addDataProperty("Report"+date, ""+this.getNumberOfVocabsOk(), TextConstants.numberVocabsOK, null);
+            w.addDataProperty("Report"+date, ""+this.getNumberOfVocabError(), TextConstants.numberVocabsError, null);
+            w.addDataProperty("Report"+date, ""+this.getNumberOfVocabWarning(), TextConstants.numberVocabsWarning, null);
+            w.close();
+            File ttl = new File(path+".ttl");
+            if(!w.getFile().getAbsoluteFile().equals(ttl.getAbsoluteFile())){
+                Files.move(w.getFile().toPath(), ttl.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }catch(IOException e){
+            System.err.println("Error while writing the report: "+e.getMessage());
+        }
         VocabUtils.saveDocument(path+".html", this.htmlSerialization());
-        VocabUtils.exportRDFFile(path+".ttl", reportModel);
     }
 
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Writer of the report in N-Triples (which is valid Turtle). Triples are 
+ * written to disk as soon as they are added, instead of building an RDF model.
+ * The triples are the same ones the addIndividual, addProperty and 
+ * addDataProperty methods of VocabUtils would create in a model.
+ * @author dgarijo
+ */
+public class ReportWriter {
+    private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+    private static final String RDF_PROPERTY = "http://www.w3.org/1999/02/22-rdf-syntax-ns#Property";
+    private static final String OWL_CLASS = "http://www.w3.org/2002/07/owl#Class";
+    private static final String OWL_DATATYPE_PROPERTY = "http://www.w3.org/2002/07/owl#DatatypeProperty";
+    private final File file;
+    private final Writer out;
+    //classes and properties already declared
+    private final HashSet<String> declared;
+    //memoized encoding of the ids
+    private final HashMap<String, String> encoded;
+    private final StringBuilder line;
+
+    public ReportWriter(File file) throws IOException {
+        this.file = file;
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 64*1024);
+        this.declared = new HashSet<>();
+        this.encoded = new HashMap<>();
+        this.line = new StringBuilder();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Adds an individual of a class (and its label, if not null).
+     * @param individualId id of the individual (not complete URI)
+     * @param classURL
+     * @param label 
+     * @throws IOException 
+     */
+    public synchronized void addIndividual(String individualId, String classURL, String label) throws IOException{
+        declare(classURL, OWL_CLASS);
+        String id = encode(individualId);
+        writeTriple(TextConstants.reportNS+id, RDF_TYPE, classURL);
+        if(label != null){
+            //as in VocabUtils.addIndividual, the id of the label is encoded twice
+            addDataProperty(id, label, TextConstants.RDFS_LABEL, null);
+        }
+    }
+
+    /**
+     * Adds a property between two individuals. If the destination is a URI,
+     * it is added as a literal.
+     * @param orig Domain of the property (Id, not complete URI)
+     * @param dest Range of the property (Id, not complete URI)
+     * @param property URI of the property
+     * @throws IOException 
+     */
+    public synchronized void addProperty(String orig, String dest, String property) throws IOException{
+        declare(property, RDF_PROPERTY);
+        String subject = TextConstants.reportNS+encode(orig);
+        if(dest.contains("http://")){
+            writeLiteral(subject, property, dest, null);
+        }else{
+            writeTriple(subject, property, TextConstants.reportNS+encode(dest));
+        }
+    }
+
+    /**
+     * Adds a data property.
+     * @param orig Domain of the property (Id, not complete URI)
+     * @param literal
+     * @param dataProperty URI of the data property
+     * @param datatype URI of the datatype of the literal (null for plain literals)
+     * @throws IOException 
+     */
+    public synchronized void addDataProperty(String orig, String literal, String dataProperty, String datatype) throws IOException{
+        declare(dataProperty, OWL_DATATYPE_PROPERTY);
+        writeLiteral(TextConstants.reportNS+encode(orig), dataProperty, literal, datatype);
+    }
+
+    public synchronized void close() throws IOException{
+        out.close();
+    }
+
+    private void declare(String uri, String type) throws IOException{
+        if(declared.add(uri)){
+            writeTriple(uri, RDF_TYPE, type);
+        }
+    }
+
+    private String encode(String id){
+        String e = encoded.get(id);
+        if(e == null){
+            e = VocabUtils.encode(id);
+            encoded.put(id, e);
+        }
+        return e;
+    }
+
+    private void writeTriple(String s, String p, String o) throws IOException{
+        line.setLength(0);
+        line.append('<').append(s).append("> <").append(p).append("> <").append(o).append("> .\n");
+        out.append(line);
+    }
+
+    private void writeLiteral(String s, String p, String literal, String datatype) throws IOException{
+        line.setLength(0);
+        line.append('<').append(s).append("> <").append(p).append("> \"");
+        for(int i=0; i<literal.length(); i++){
+            char c = literal.charAt(i);
+            switch(c){
+                case '\\': line.append("\\\\"); break;
+                case '"': line.append("\\\""); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                case '\t': line.append("\\t"); break;
+                default: line.append(c);
+            }
+        }
+        line.append('"');
+        if(datatype != null){
+            line.append("^^<").append(datatype).append('>');
+        }
+        line.append(" .\n");
+        out.append(line);
+    }
+
+}
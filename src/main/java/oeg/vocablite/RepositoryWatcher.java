@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monitors the folders of a repository (watch mode) and updates the site
+ * when its vocabularies are created, modified or deleted. The changes are
+ * grouped: the site is updated once no change has been seen for the debounce
+ * time. Only the vocabularies that have changed are parsed again (see
+ * Manifest), and the rows of the catalog of the vocabularies that have not
+ * changed are reused.
+ * @author dgarijo
+ */
+public class RepositoryWatcher {
+    private final Path repository;
+    private final Path output;
+    private final File outputFolder;
+    private final String repoName;
+    private final WatchService service;
+    private final HashMap<WatchKey, Path> folders;
+    private Runnable listener;
+
+    /**
+     * Starts monitoring the folders of a repository.
+     * @param path path of the repository
+     * @param outputFolder folder of the site (ignored if it is in the repository)
+     * @param repoName name of the repository
+     * @throws IOException
+     */
+    public RepositoryWatcher(String path, File outputFolder, String repoName) throws IOException {
+        this.repository = new File(path).getAbsoluteFile().toPath().normalize();
+        this.output = outputFolder.getAbsoluteFile().toPath().normalize();
+        this.outputFolder = outputFolder;
+        this.repoName = repoName;
+        this.service = FileSystems.getDefault().newWatchService();
+        this.folders = new HashMap<>();
+        register(repository);
+    }
+
+    /**
+     * @param listener called every time the site has been updated (may be null)
+     */
+    public void setUpdateListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Registers a folder and its subfolders.
+     * @param folder
+     */
+    private void register(Path folder) throws IOException{
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>(){
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if(dir.startsWith(output)){
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                folders.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                System.err.println("Could not monitor "+file+": "+e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Updates the site every time the repository changes. This method does
+     * not return unless the thread is interrupted.
+     * @param manifest manifest of the last run
+     * @param vocabs vocabularies of the last run
+     * @param rows rows of the catalog of the last run
+     * @throws InterruptedException
+     */
+    public void watch(Manifest manifest, ArrayList<Vocabulary> vocabs,
+            IdentityHashMap<Vocabulary, CatalogWriter.Row> rows) throws InterruptedException{
+        long debounce = Configuration.getInstance().getWatchDebounce();
+        ArrayList<File> files = null;
+        System.out.println("Watching "+repository+" for changes");
+        try{
+            while(true){
+                //wait for the first change and then until no change is seen for the debounce time
+                WatchKey key = service.take();
+                boolean changed = false;
+                boolean structure = false;
+                while(key != null){
+                    Path dir = folders.get(key);
+                    for(WatchEvent<?> e:key.pollEvents()){
+                        if(e.kind() == StandardWatchEventKinds.OVERFLOW || dir == null){
+                            //events were lost
+                            changed = structure = true;
+                            continue;
+                        }
+                        Path child = dir.resolve((Path)e.context());
+                        if(child.startsWith(output)){
+                            continue;
+                        }
+                        if(Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)){
+                            if(e.kind() == StandardWatchEventKinds.ENTRY_CREATE){
+                                try{
+                                    register(child);
+                                }catch(IOException ex){
+                                    System.err.println("Could not monitor "+child+": "+ex.getMessage());
+                                }
+                                changed = structure = true;
+                            }
+                        }else if(e.kind() == StandardWatchEventKinds.ENTRY_DELETE && !folders.containsValue(child)){
+                            //deleted folders are detected when their key is no longer valid
+                            if(ProcessRepository.isVocabularyFile(child.toString())){
+                                changed = structure = true;
+                            }
+                        }else if(ProcessRepository.isVocabularyFile(child.toString())){
+                            changed = true;
+                            structure |= e.kind() != StandardWatchEventKinds.ENTRY_MODIFY;
+                        }
+                    }
+                    if(!key.reset()){
+                        //the folder was deleted
+                        folders.remove(key);
+                        changed = structure = true;
+                    }
+                    key = service.poll(debounce, TimeUnit.MILLISECONDS);
+                }
+                if(!changed){
+                    continue;
+                }
+                long start = System.nanoTime();
+                try{
+                    if(structure || files == null){
+                        files = ProcessRepository.getVocabularyFiles(repository.toString());
+                        if(files == null){
+                            System.err.println("The directory sent as parameter could not be read");
+                            files = new ArrayList<>();
+                        }
+                    }
+                    Report.reset();
+                    Metrics.reset();
+                    manifest = manifest.next();
+                    ArrayList<Vocabulary> previous = vocabs;
+                    vocabs = ProcessRepository.processVocabularies(files, Configuration.getInstance().getThreads(), manifest);
+                    removePublishedFiles(previous, vocabs);
+                    rows = MainSiteCreator.createPages(vocabs, outputFolder, repoName, rows);
+                    MainSiteCreator.saveSite(outputFolder, manifest);
+                    if(listener != null){
+                        listener.run();
+                    }
+                    System.out.println("Site updated in "+(System.nanoTime()-start)/1000000+" ms");
+                }catch(Exception e){
+                    System.err.println("Could not update the site: "+e.getMessage());
+                }
+            }
+        }finally{
+            try{
+                service.close();
+            }catch(IOException e){
+                //nothing to do
+            }
+        }
+    }
+
+    /**
+     * Deletes the published files of the vocabularies that are no longer in
+     * the repository.
+     * @param previous vocabularies of the last run
+     * @param current vocabularies of this run
+     */
+    private void removePublishedFiles(ArrayList<Vocabulary> previous, ArrayList<Vocabulary> current){
+        HashSet<String> names = new HashSet<>();
+        for(Vocabulary v:current){
+            names.add(v.getName());
+        }
+        for(Vocabulary v:previous){
+            if(v.getName() != null && !names.contains(v.getName())){
+                File f = new File(new File(outputFolder, TextConstants.ontologyFolder), v.getName());
+                if(f.exists() && !f.delete()){
+                    System.err.println("Could not delete "+f.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+}
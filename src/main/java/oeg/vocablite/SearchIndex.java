@@ -0,0 +1,327 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+import org.json.simple.JSONValue;
+
+/**
+ * Inverted index of the catalog used by the search of the site
+ * (vocab/js/search.js). The titles, descriptions, prefixes, licenses and
+ * languages of the vocabularies are split in tokens (lower case, without
+ * accents). The index (search.json) has the tokens sorted, so the browser
+ * finds a token or all the tokens with a prefix with a binary search, and
+ * the ids of the vocabularies of each token (delta encoded). The rules of
+ * the tokenizer are saved in the index too, so the queries are split in the
+ * same way.
+ * When the index has more than TextConstants.searchIndexMaxTokens tokens in 
+ * memory, they are saved (sorted) in a temporary file, and the files are
+ * merged when the index is saved, so the memory used does not depend on the
+ * size of the repository.
+ * @author dgarijo
+ */
+public class SearchIndex {
+    private static final Pattern separator = Pattern.compile(TextConstants.tokenSeparator);
+    private static final Pattern marks = Pattern.compile(TextConstants.tokenMarks);
+    private final HashMap<String, Postings> postings;
+    //tokens of the vocabulary being added (reused)
+    private final HashSet<String> tokens;
+    //sorted parts of the index saved in temporary files
+    private final ArrayList<File> runs;
+
+    public SearchIndex() {
+        postings = new HashMap<>();
+        tokens = new HashSet<>();
+        runs = new ArrayList<>();
+    }
+
+    /**
+     * Adds a vocabulary to the index. The vocabularies must be added in the
+     * order of their ids.
+     * @param id id of the vocabulary in the catalog
+     * @param v
+     */
+    public void add(int id, Vocabulary v){
+        tokens.clear();
+        tokenize(v.getTitle(), tokens);
+        tokenize(v.getDescription(), tokens);
+        tokenize(v.getPrefix(), tokens);
+        tokenize(v.getLicenseTitle(), tokens);
+        if(v.getLanguage() != null){
+            for(String l:v.getLanguage()){
+                tokenize(l, tokens);
+            }
+        }
+        for(String t:tokens){
+            Postings p = postings.get(t);
+            if(p == null){
+                p = new Postings();
+                postings.put(t, p);
+            }
+            p.add(id);
+        }
+        if(postings.size() > TextConstants.searchIndexMaxTokens){
+            try{
+                spill();
+            }catch(IOException e){
+                System.err.println("Could not save a part of the search index: "+e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Saves the tokens in memory (sorted) in a temporary file, one line per
+     * token: the token and its ids (not delta encoded).
+     */
+    private void spill() throws IOException{
+        File run = File.createTempFile("search", ".run");
+        run.deleteOnExit();
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(run), "UTF-8"), 64*1024);
+        try{
+            for(String t:sortedTokens()){
+                out.write(t);
+                postings.get(t).write(out, false, ' ');
+                out.write("\n");
+            }
+        }finally{
+            out.close();
+        }
+        runs.add(run);
+        postings.clear();
+    }
+
+    private String[] sortedTokens(){
+        String[] sorted = postings.keySet().toArray(new String[postings.size()]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Splits a text in tokens: sequences of letters and digits, in lower case
+     * and without accents (TextConstants.tokenSeparator and tokenMarks). 
+     * Tokens shorter than TextConstants.minTokenLength are ignored and longer
+     * than TextConstants.maxTokenLength are cut. search.js splits the queries
+     * with the same rules (see writeRules).
+     * @param text
+     * @param tokens collection where the tokens are added
+     */
+    public static void tokenize(String text, Collection<String> tokens){
+        if(text == null){
+            return;
+        }
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        normalized = marks.matcher(normalized).replaceAll("");
+        for(String token:separator.split(normalized)){
+            if(token.length() > TextConstants.maxTokenLength){
+                token = token.substring(0, TextConstants.maxTokenLength);
+            }
+            if(token.length() >= TextConstants.minTokenLength){
+                tokens.add(token);
+            }
+        }
+    }
+
+    /**
+     * Writes the rules of the tokenizer (the first field of search.json).
+     */
+    private static void writeRules(Writer out) throws IOException{
+        out.write("{\"tokenizer\":{\"separator\":\""+JSONValue.escape(TextConstants.tokenSeparator)
+                +"\",\"marks\":\""+JSONValue.escape(TextConstants.tokenMarks)
+                +"\",\"minLength\":"+TextConstants.minTokenLength+",\"maxLength\":"+TextConstants.maxTokenLength+"},\n");
+    }
+
+    /**
+     * Saves the index as JSON: {"tokenizer":{...}, "tokens":[...], 
+     * "postings":[[...], ...]}. The
+     * first id of each token is absolute and the next ones are the
+     * difference with the previous id.
+     * @param f
+     * @throws IOException
+     */
+    public void save(File f) throws IOException{
+        if(!runs.isEmpty()){
+            spill();
+            merge(f);
+            return;
+        }
+        String[] sorted = sortedTokens();
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), "UTF-8"), 64*1024);
+        try{
+            writeRules(out);
+            out.write("\"tokens\":[");
+            for(int i = 0; i < sorted.length; i++){
+                out.write((i>0?",":"")+"\""+JSONValue.escape(sorted[i])+"\"");
+            }
+            out.write("],\n\"postings\":[");
+            for(int i = 0; i < sorted.length; i++){
+                if(i > 0){
+                    out.write(",");
+                }
+                out.write("[");
+                postings.get(sorted[i]).write(out, true, ',');
+                out.write("]");
+            }
+            out.write("]}\n");
+        }finally{
+            out.close();
+        }
+    }
+
+    /**
+     * Merges the temporary files of the index. The ids of a token in a file
+     * are lower than in the next files, because the vocabularies are added
+     * in the order of their ids.
+     * @param f 
+     */
+    private void merge(File f) throws IOException{
+        final ArrayList<BufferedReader> readers = new ArrayList<>();
+        //current line of each file
+        final ArrayList<String> lines = new ArrayList<>();
+        PriorityQueue<Integer> heads = new PriorityQueue<>(runs.size(), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int c = token(lines.get(a)).compareTo(token(lines.get(b)));
+                return c != 0 ? c : a.compareTo(b);
+            }
+        });
+        File ids = File.createTempFile("search", ".ids");
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), "UTF-8"), 64*1024);
+        Writer idsOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(ids), "UTF-8"), 64*1024);
+        try{
+            for(int i = 0; i < runs.size(); i++){
+                readers.add(new BufferedReader(new InputStreamReader(new FileInputStream(runs.get(i)), "UTF-8"), 64*1024));
+                lines.add(readers.get(i).readLine());
+                if(lines.get(i) != null){
+                    heads.add(i);
+                }
+            }
+            writeRules(out);
+            out.write("\"tokens\":[");
+            String token = null;
+            int previous = 0;
+            while(!heads.isEmpty()){
+                int i = heads.poll();
+                String line = lines.get(i);
+                String t = token(line);
+                if(!t.equals(token)){
+                    if(token != null){
+                        out.write(",");
+                        idsOut.write("],");
+                    }
+                    out.write("\""+JSONValue.escape(t)+"\"");
+                    idsOut.write("[");
+                    token = t;
+                    previous = 0;
+                }else{
+                    idsOut.write(",");
+                }
+                //ids of the token in this file (delta encoded)
+                String[] values = line.substring(t.length()+1).split(" ");
+                for(int j = 0; j < values.length; j++){
+                    int id = Integer.parseInt(values[j]);
+                    idsOut.write((j>0?",":"")+(id-previous));
+                    previous = id;
+                }
+                lines.set(i, readers.get(i).readLine());
+                if(lines.get(i) != null){
+                    heads.add(i);
+                }
+            }
+            if(token != null){
+                idsOut.write("]");
+            }
+            idsOut.close();
+            out.write("],\n\"postings\":[");
+            Reader in = new InputStreamReader(new FileInputStream(ids), "UTF-8");
+            try{
+                char[] buffer = new char[64*1024];
+                for(int n = in.read(buffer); n > 0; n = in.read(buffer)){
+                    out.write(buffer, 0, n);
+                }
+            }finally{
+                in.close();
+            }
+            out.write("]}\n");
+        }finally{
+            out.close();
+            idsOut.close();
+            for(BufferedReader r:readers){
+                r.close();
+            }
+            ids.delete();
+            for(File run:runs){
+                run.delete();
+            }
+            runs.clear();
+        }
+    }
+
+    private static String token(String line){
+        return line.substring(0, line.indexOf(' '));
+    }
+
+    /**
+     * Ids of the vocabularies of a token.
+     */
+    private static class Postings{
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id){
+            if(size == ids.length){
+                ids = Arrays.copyOf(ids, size*2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * @param out
+         * @param delta whether the ids are delta encoded
+         * @param separator character written before each id (but the first
+         * one if it is a comma)
+         */
+        void write(Writer out, boolean delta, char separator) throws IOException{
+            int previous = 0;
+            for(int i = 0; i < size; i++){
+                if(i > 0 || separator != ','){
+                    out.write(separator);
+                }
+                out.write(""+(delta ? ids[i]-previous : ids[i]));
+                previous = ids[i];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.query.QueryCancelledException;
+import com.hp.hpl.jena.query.QueryException;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP server of the site (serve mode). The pages generated in the root of
+ * the site (catalog pages, report, JSON indexes) are kept in memory,
+ * together with their compressed version, and are replaced all at once
+ * when the site has been updated (see refresh), so the requests never wait
+ * for an update and never see a half-written page. The rest of the files
+ * (published vocabularies and resources of the site) are read from disk.
+ * The manifest of the site is not served (it has the local paths of the
+ * vocabularies).
+ * Responses have an ETag and a Last-Modified date, conditional requests
+ * are answered with 304 and text files are compressed with gzip when the
+ * client accepts it.
+ * When the site has a catalog store (-store), the queries sent to
+ * TextConstants.serverQueryPath are answered with the store of this process
+ * (see QueryHandler), as the store cannot be opened by CatalogQuery while it
+ * is being used.
+ * @author dgarijo
+ */
+public class SiteServer implements HttpHandler {
+    private final File outputFolder;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    //path (e.g., /index.html) -> page
+    private volatile HashMap<String, Page> pages;
+
+    /**
+     * @param outputFolder folder of the site
+     * @param port
+     * @throws IOException if the port cannot be used
+     */
+    public SiteServer(File outputFolder, int port) throws IOException {
+        this.outputFolder = outputFolder.getAbsoluteFile();
+        this.pages = new HashMap<>();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.workers = Executors.newFixedThreadPool(TextConstants.serverThreads);
+        server.createContext("/", this);
+        if(Configuration.getInstance().getStorePath() != null){
+            server.createContext(TextConstants.serverQueryPath, new QueryHandler());
+        }
+        server.setExecutor(workers);
+    }
+
+    /**
+     * Loads the pages of the site and starts serving requests.
+     */
+    public void start(){
+        refresh();
+        server.start();
+        System.out.println("Serving the site at http://localhost:"+server.getAddress().getPort()+"/");
+    }
+
+    public void stop(){
+        server.stop(0);
+        workers.shutdown();
+    }
+
+    /**
+     * Loads the pages of the root of the site again (after the site has
+     * been updated). Files bigger than TextConstants.serverMaxPageSize are
+     * read from disk.
+     */
+    public void refresh(){
+        HashMap<String, Page> loaded = new HashMap<>();
+        File[] files = outputFolder.listFiles();
+        if(files != null){
+            for(File f:files){
+                if(!f.isFile() || isPrivate("/"+f.getName()) || f.length() > TextConstants.serverMaxPageSize){
+                    continue;
+                }
+                try{
+                    loaded.put("/"+f.getName(), new Page(f));
+                }catch(Exception e){
+                    System.err.println("Could not load "+f.getName()+": "+e.getMessage());
+                }
+            }
+        }
+        pages = loaded;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try{
+            String method = exchange.getRequestMethod();
+            if(!method.equals("GET") && !method.equals("HEAD")){
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, 405);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if(path == null || path.isEmpty() || path.endsWith("/")){
+                path = (path == null ? "/" : path)+TextConstants.siteName;
+            }
+            path = new URI(null, null, path, null).normalize().getPath();
+            if(path.contains("..") || isPrivate(path)){
+                sendError(exchange, 404);
+                return;
+            }
+            Page page = pages.get(path);
+            if(page != null){
+                page.send(exchange);
+            }else{
+                sendFile(exchange, path);
+            }
+        }catch(Exception e){
+            //the client has closed the connection, or the path is not valid
+            try{
+                sendError(exchange, 400);
+            }catch(IOException ex){
+                //nothing to do
+            }
+        }finally{
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param path normalized path of a request
+     * @return whether the path is a hidden file, a temporary file or the 
+     * manifest of the site.
+     */
+    private static boolean isPrivate(String path){
+        return path.startsWith("/.") || path.endsWith(".tmp") || path.equals("/"+TextConstants.manifestName);
+    }
+
+    /**
+     * Sends a file of the site from disk. The path has been normalized and
+     * has no "..", so it is inside the site (the published vocabularies may
+     * be symbolic links to files outside it, see -publish symlink).
+     */
+    private void sendFile(HttpExchange exchange, String path) throws IOException{
+        File f = new File(outputFolder, path.substring(1));
+        if(!f.isFile()){
+            sendError(exchange, 404);
+            return;
+        }
+        long lastModified = f.lastModified();
+        boolean gzip = isCompressible(f.getName()) && acceptsGzip(exchange);
+        String etag = "\""+Long.toHexString(f.length())+"-"+Long.toHexString(lastModified)+(gzip ? "-gz" : "")+"\"";
+        Headers headers = exchange.getResponseHeaders();
+        setHeaders(headers, f.getName(), etag, lastModified);
+        if(isNotModified(exchange, etag, lastModified)){
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        if(exchange.getRequestMethod().equals("HEAD")){
+            if(gzip){
+                headers.set("Content-Encoding", "gzip");
+            }else{
+                headers.set("Content-Length", Long.toString(f.length()));
+            }
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        if(gzip){
+            headers.set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = new GZIPOutputStream(exchange.getResponseBody(), 64*1024);
+            try{
+                Files.copy(f.toPath(), out);
+            }finally{
+                out.close();
+            }
+        }else{
+            exchange.sendResponseHeaders(200, f.length() == 0 ? -1 : f.length());
+            Files.copy(f.toPath(), exchange.getResponseBody());
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int code) throws IOException{
+        exchange.sendResponseHeaders(code, -1);
+    }
+
+    private static void sendText(HttpExchange exchange, int code, String text) throws IOException{
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void setHeaders(Headers headers, String name, String etag, long lastModified){
+        headers.set("Content-Type", getContentType(name));
+        headers.set("ETag", etag);
+        headers.set("Last-Modified", formatDate(lastModified));
+        headers.set("Cache-Control", "no-cache");
+        if(isCompressible(name)){
+            headers.set("Vary", "Accept-Encoding");
+        }
+    }
+
+    /**
+     * @return whether the copy of the client is still valid (If-None-Match,
+     * or If-Modified-Since when there is no If-None-Match).
+     */
+    private static boolean isNotModified(HttpExchange exchange, String etag, long lastModified){
+        Headers request = exchange.getRequestHeaders();
+        String match = request.getFirst("If-None-Match");
+        if(match != null){
+            for(String tag:match.split(",")){
+                tag = tag.trim();
+                if(tag.startsWith("W/")){
+                    tag = tag.substring(2);
+                }
+                if(tag.equals("*") || tag.equals(etag)){
+                    return true;
+                }
+            }
+            return false;
+        }
+        String since = request.getFirst("If-Modified-Since");
+        if(since != null){
+            try{
+                Date d = dateFormat().parse(since);
+                return lastModified/1000 <= d.getTime()/1000;
+            }catch(java.text.ParseException e){
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange){
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+
+    private static SimpleDateFormat dateFormat(){
+        SimpleDateFormat f = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        f.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return f;
+    }
+
+    private static String formatDate(long time){
+        return dateFormat().format(new Date(time));
+    }
+
+    private static String extension(String name){
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? "" : name.substring(dot+1).toLowerCase();
+    }
+
+    private static boolean isCompressible(String name){
+        String type = getContentType(name);
+        return type.startsWith("text/") || type.startsWith("application/json") || type.startsWith("application/javascript")
+                || type.startsWith("application/rdf+xml") || type.startsWith("image/svg");
+    }
+
+    private static String getContentType(String name){
+        switch(extension(name)){
+            case "html": return "text/html; charset=UTF-8";
+            case "css": return "text/css; charset=UTF-8";
+            case "js": return "application/javascript; charset=UTF-8";
+            case "json": return "application/json; charset=UTF-8";
+            case "ttl": return "text/turtle; charset=UTF-8";
+            case "prom": return "text/plain; version=0.0.4; charset=UTF-8";
+            case "owl":
+            case "rdf":
+            case "rdfs":
+            case "xml": return "application/rdf+xml";
+            case "png": return "image/png";
+            case "gif": return "image/gif";
+            case "jpg":
+            case "jpeg": return "image/jpeg";
+            case "svg": return "image/svg+xml";
+            case "ico": return "image/x-icon";
+            case "woff": return "application/font-woff";
+            case "ttf": return "application/x-font-ttf";
+            case "eot": return "application/vnd.ms-fontobject";
+            default: return "application/octet-stream";
+        }
+    }
+
+    /**
+     * SPARQL endpoint of the catalog store (see CatalogStore.query). The 
+     * query is sent in the query parameter (GET or a POST form) or as the 
+     * body of a POST (application/sparql-query), and the format of the 
+     * results in the format parameter (json by default). Queries that take
+     * more than TextConstants.serverQueryTimeout are cancelled.
+     */
+    private static class QueryHandler implements HttpHandler{
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try{
+                String method = exchange.getRequestMethod();
+                HashMap<String, String> parameters = new HashMap<>();
+                addParameters(exchange.getRequestURI().getRawQuery(), parameters);
+                if(method.equals("POST")){
+                    String body = new String(read(exchange.getRequestBody()), StandardCharsets.UTF_8);
+                    String type = exchange.getRequestHeaders().getFirst("Content-Type");
+                    if(type != null && type.startsWith("application/sparql-query")){
+                        parameters.put("query", body);
+                    }else{
+                        addParameters(body, parameters);
+                    }
+                }else if(!method.equals("GET")){
+                    exchange.getResponseHeaders().set("Allow", "GET, POST");
+                    sendError(exchange, 405);
+                    return;
+                }
+                String query = parameters.get("query");
+                if(query == null || query.trim().isEmpty()){
+                    sendText(exchange, 400, "No query");
+                    return;
+                }
+                String format = parameters.containsKey("format") ? parameters.get("format") : "json";
+                CatalogStore store = CatalogStore.getInstance();
+                if(store == null){
+                    sendError(exchange, 503);
+                    return;
+                }
+                //the results are sent once the query has been answered, so errors get their own status
+                ByteArrayOutputStream results = new ByteArrayOutputStream();
+                String type;
+                try{
+                    type = store.query(query, format, TextConstants.serverQueryTimeout, results);
+                }catch(QueryCancelledException e){
+                    sendText(exchange, 503, "The query took more than "+TextConstants.serverQueryTimeout+" ms");
+                    return;
+                }catch(QueryException e){
+                    sendText(exchange, 400, String.valueOf(e.getMessage()));
+                    return;
+                }
+                Headers headers = exchange.getResponseHeaders();
+                headers.set("Content-Type", type);
+                headers.set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, results.size() == 0 ? -1 : results.size());
+                results.writeTo(exchange.getResponseBody());
+            }catch(Exception e){
+                System.err.println("Could not answer a query: "+e.getMessage());
+                try{
+                    sendError(exchange, 500);
+                }catch(IOException ex){
+                    //the response has been sent
+                }
+            }finally{
+                exchange.close();
+            }
+        }
+
+        /**
+         * Adds the parameters of a query string or a form (name=value&...).
+         */
+        private static void addParameters(String encoded, HashMap<String, String> parameters) throws IOException{
+            if(encoded == null){
+                return;
+            }
+            for(String parameter:encoded.split("&")){
+                int equals = parameter.indexOf('=');
+                if(equals > 0){
+                    parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(parameter.substring(equals+1), "UTF-8"));
+                }
+            }
+        }
+
+        private static byte[] read(InputStream in) throws IOException{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while((n = in.read(buffer)) != -1){
+                bytes.write(buffer, 0, n);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Page of the site kept in memory.
+     */
+    private static class Page{
+        private final String name;
+        private final byte[] content;
+        private final byte[] compressed;
+        private final String etag;
+        private final long lastModified;
+
+        Page(File f) throws Exception{
+            name = f.getName();
+            lastModified = f.lastModified();
+            content = Files.readAllBytes(f.toPath());
+            etag = "\""+MD5.MD5(new ByteArrayInputStream(content))+"\"";
+            if(isCompressible(name)){
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length/4+64);
+                GZIPOutputStream out = new GZIPOutputStream(bytes);
+                out.write(content);
+                out.close();
+                compressed = bytes.toByteArray();
+            }else{
+                compressed = null;
+            }
+        }
+
+        void send(HttpExchange exchange) throws IOException{
+            boolean gzip = compressed != null && acceptsGzip(exchange);
+            //each encoding has its own tag
+            String tag = gzip ? etag.substring(0, etag.length()-1)+"-gz\"" : etag;
+            Headers headers = exchange.getResponseHeaders();
+            setHeaders(headers, name, tag, lastModified);
+            if(isNotModified(exchange, tag, lastModified)){
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = gzip ? compressed : content;
+            if(gzip){
+                headers.set("Content-Encoding", "gzip");
+            }
+            if(exchange.getRequestMethod().equals("HEAD")){
+                headers.set("Content-Length", Integer.toString(body.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Handler that adds the vocabularies to the site as they are processed:
+ * they are looked up in LOV (if enabled), their rows are written in the
+ * catalog, their files are published and they are saved in the catalog
+ * store (if any). Nothing is kept once a batch has been handled (except the
+ * rows of the catalog in watch mode).
+ * @author dgarijo
+ */
+public class SiteWriter implements VocabularyHandler {
+    private final Publisher publisher;
+    private final CatalogWriter catalog;
+    private int found;
+
+    /**
+     * @param outputFolder folder of the site
+     * @param repoName name of the repository
+     * @param previousRows rows of the previous catalog pages (null if the 
+     * rows are not kept)
+     * @throws IOException 
+     */
+    public SiteWriter(File outputFolder, String repoName, IdentityHashMap<Vocabulary, CatalogWriter.Row> previousRows) throws IOException {
+        this.publisher = new Publisher(new File(outputFolder, TextConstants.ontologyFolder), 
+                Configuration.getInstance().getPublishMode(), Configuration.getInstance().getThreads());
+        this.catalog = new CatalogWriter(outputFolder.getAbsolutePath()+File.separator+TextConstants.siteName, 
+                repoName, outputFolder, Configuration.getInstance().getPageSize(), previousRows);
+        this.found = 0;
+    }
+
+    @Override
+    public void handle(List<Vocabulary> batch) throws IOException {
+        if(Configuration.getInstance().isLov()){
+            found += VocabUtils.getLOVPages(batch);
+        }
+        for(Vocabulary v:batch){
+            publisher.reserveName(v);
+            catalog.addVocabulary(v);
+            publisher.submit(v);
+        }
+        if(CatalogStore.getInstance() != null){
+            CatalogStore.getInstance().addVocabularies(batch);
+        }
+    }
+
+    /**
+     * Finishes the catalog and waits until all the files have been published.
+     * @return the rows of the catalog (null if they are not kept)
+     * @throws IOException 
+     */
+    public IdentityHashMap<Vocabulary, CatalogWriter.Row> close() throws IOException{
+        try{
+            catalog.close();
+        }finally{
+            publisher.close();
+        }
+        if(Configuration.getInstance().isLov()){
+            System.out.println("\n"+found+" vocabularies found in LOV");
+        }
+        return catalog.getRows();
+    }
+
+}
@@ -16,7 +16,6 @@
 package oeg.vocablite;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -31,7 +30,13 @@ public class TextConstants {
     public static final String outPath = "";
     //public static final String reportFolder = "report"; //since the report has the same css etc, it will be exported on the same folder
     public static final String reportName = "report";
+    public static final String metricsName = "metrics";
     public static final String siteName = "index.html";
+    public static final String catalogIndexName = "catalog.json";
+    public static final String searchIndexName = "search.json";
+    public static final String manifestName = "manifest.json";
+    //checksums of the resources extracted in the site
+    public static final String assetStampName = ".assets";
     public static final String getsiteFolderName(){
         return "site_"+new Date().getTime();
     }
@@ -41,8 +46,56 @@ public class TextConstants {
     public static final String licensiusURIServiceLicense = "http://www.licensius.com/api/license/findlicenseinrdf?uri=";//"http://licensius.appspot.com/getLicense?content=";
     public static final String licensiusURIServiceLicenseInfo = "http://www.licensius.com/api/license/getlicenseinfo?uri=";//"http://licensius.appspot.com/getLicenseTitle?content=";
     
+    public static final String licenseCacheName = ".vocablite"+java.io.File.separator+"licensius-cache.json";
+    public static final long cacheTTL = 30L*24*60*60*1000;//30 days
+    public static final long cacheFailureTTL = 24L*60*60*1000;//failed calls are tried again after a day
+    public static final int cacheMaxEntries = 10000;
+    public static final String lovCacheName = ".vocablite"+java.io.File.separator+"lov-cache.json";
+    public static final int lovBatchSize = 100;
+    //vocabularies sent together to the pages (so LOV is queried once per batch)
+    public static final int vocabularyBatchSize = lovBatchSize;
+    //vocabularies parsed ahead by each worker
+    public static final int parsingWindow = 2;
+    //time (ms) without changes in the repository before the site is updated (watch mode)
+    public static final long watchDebounce = 300;
+    //serve mode: port, threads answering requests and biggest page kept in memory
+    public static final int serverPort = 8080;
+    public static final int serverThreads = 8;
+    public static final long serverMaxPageSize = 16*1024*1024;
+    //serve mode: path of the SPARQL endpoint of the store and time (ms) to answer a query
+    public static final String serverQueryPath = "/sparql";
+    public static final long serverQueryTimeout = 30000;
+    //large files (header-only extraction from a memory-mapped file)
+    public static final long MB = 1024*1024;
+    public static final long largeFileThreshold = 64*MB;
+    public static final long mappedWindowSize = 256*MB;
+    //memory used by a model, compared with the size of its file
+    public static final int modelMemoryFactor = 8;
+    //header triples kept for subjects that are not likely ontologies before owl:Ontology is found (streaming extraction)
+    public static final int headerCandidatesLimit = 1000;
+    //characters of an RDF/XML vocabulary where the languages are looked for when only its header is scanned
+    public static final long languageSample = 1024*1024;
+    
+    //content negotiation requests
+    public static final int httpConnectTimeout = 5000;//ms
+    public static final int httpReadTimeout = 10000;//ms
+    public static final int httpMaxConnections = 20;
+    public static final int httpMaxConnectionsPerHost = 5;
+    
     public static final int shortDescLenght = 140;
     public static final int shortLicense = 30;   
+    //rows of each catalog page, and pages linked before and after the current one
+    public static final int pageSize = 500;
+    public static final int paginationWindow = 3;
+    //tokens of the search index
+    public static final int minTokenLength = 2;
+    public static final int maxTokenLength = 32;
+    //characters that separate the tokens, and marks removed from them (accents). They
+    //are written in search.json, so search.js splits the queries with the same rules
+    public static final String tokenSeparator = "[^\\p{L}\\p{Nd}]+";
+    public static final String tokenMarks = "\\p{Mn}+";
+    //tokens of the search index kept in memory before they are saved in a temporary file
+    public static final int searchIndexMaxTokens = 50000;
     
     
     public static String getheader (String repoName){
@@ -177,6 +230,10 @@ public class TextConstants {
     public static final String tableHeadVocab= 
                     
                     "<div class=\"row\"> \n"+    
+                    "<div class=\"col-md-6\">\n"+
+                    "<input type=\"search\" id=\"search\" class=\"form-control\" placeholder=\"Search vocabularies\" autocomplete=\"off\">\n"+
+                    "<ul id=\"searchResults\" class=\"list-group\"></ul>\n"+
+                    "</div>\n"+
                     "</div>\n"+
                     "<br>\n"+
                     "<table id=\"tablesorter-demo\" class=\"tablesorter table table-hover table-responsive\">\n"+
@@ -204,51 +261,17 @@ public class TextConstants {
     
     public static final String tableEnd = "</tbody></table>\n";
     
+    //"See more"/"See less" links of the descriptions of all the rows of a page
+    public static final String descriptionScript = "<script>\n"+
+                    "$('#tablesorter-demo').on('click', 'a.more, a.less', function () {\n"+
+                    "$(this).parent().hide().siblings('p').show();\n"+
+                    "}); \n"+
+                    "</script>\n";
+    
 
-    public static String getScriptForFilteringAndEndDocument(ArrayList<String> domains){
-        String s = "<script>\n"+
-		"$(function() {\n"+
-		"var availableTags = [\n";
-                if(!domains.isEmpty()){
-                    s+="\""+domains.get(0)+"\"\n";
-                    for (int i=1; i<domains.size();i++ ){
-			s+=", \""+domains.get(i)+"\"";
-                    }
-                }
-		s+="];\n"+"$( \"#tags\" ).autocomplete({\n"+
-		"source: availableTags,\n"+
-		"select: function(event, ui) {\n"+		
-		"hideRows(ui.item.value);\n"+
-		"}\n"+
-		"});\n"+
-		"});\n"+
-		"</script>\n"+
-		"<script>\n"+
-		"function hideRows(text) {\n"+
-		"index = 1;\n"+
-		"tr = document.getElementById('tr'+index);\n"+
-		"while (tr!=null){\n"+
-		"valores = document.getElementById('inp'+index).value;\n"+
-		"if (valores.indexOf(text+'--')==-1){\n"+
-		"tr.style.display='none';\n"+
-		"}\n"+
-		"index++;\n"+
-		"tr = document.getElementById('tr'+index);\n"+
-		"}\n"+
-		"document.getElementById('remButt').style.display='';\n"+
-		"}\n"+
-		"\n"+
-		"function showRows() {	\n"+
-		"index = 1;\n"+
-		"tr = document.getElementById('tr'+index);\n"+
-		"while (tr!=null){\n"+
-		"tr.style.display='';\n"+		
-		"index++;\n"+
-		"tr = document.getElementById('tr'+index);\n"+
-		"}\n"+
-		"butt = document.getElementById('remButt').style.display='none';\n"+
-		"}\n"+
-		"</script>"+
+    //search of the vocabularies (see SearchIndex)
+    public static final String searchScriptAndEndDocument = 
+                "<script type=\"text/javascript\" src=\"vocab/js/search.js\"></script>\n"+
                //the following is commented because you require your own page.
                // "<script>\n" +
                // "(function(i,s,o,g,r,a,m){i['GoogleAnalyticsObject']=r;i[r]=i[r]||function(){ (i[r].q=i[r].q||[]).push(arguments)},i[r].l=1*new Date();a=s.createElement(o),\n" +
@@ -260,8 +283,7 @@ public class TextConstants {
                 "" +
                 "  </body>\n" +
                 "</html>\n";
-        return s;
-    }
+    
     /*public static String getOntologyPageAndEvaluation(String evaluationContent, Vocabulary v){
         String eval = "<!DOCTYPE html>\n" +
         "<html lang=\"en\">\n" +
@@ -440,6 +462,8 @@ public class TextConstants {
     //reporting classes, properties, errors
     public enum Warning{LICENCE_NOT_FOUND, LANG_NOT_FOUND, NO_DOMAINS_FOUND_FOR_VOCAB,NO_SERIALIZATIONS_FOR_VOCAB, MISSING_TITLE_OR_DESC_FOR_VOCAB,}
     public enum Error{ PARSING_ERR, EXCEPTION_ERROR}
+    //how the vocabularies are published in the site
+    public enum PublishMode{COPY, HARDLINK, SYMLINK}
     
     public static final String reportNS = "http://vocab.linkeddata.es/ontology/report#";
     public static final String entry = reportNS+"Entry";
@@ -457,7 +481,23 @@ public class TextConstants {
     public static final String numberVocabsError = reportNS+ "numberVocabsError";
     public static final String numberVocabsOK = reportNS+ "numberVocabsOK";
     public static final String reportDate = reportNS+ "reportDate";  
+    public static final String detectedSerialization = reportNS+ "detectedSerialization";
+    public static final String parsingTime = reportNS+ "parsingTime";
+    public static final String headerExtractionTime = reportNS+ "headerExtractionTime";
+    public static final String languageDetectionTime = reportNS+ "languageDetectionTime";
+    public static final String licenseLookupTime = reportNS+ "licenseLookupTime";
+    public static final String publishingTime = reportNS+ "publishingTime";
+    public static final String renderingTime = reportNS+ "renderingTime";
     public static final String RDFS_LABEL = "http://www.w3.org/2000/01/rdf-schema#label";
+    //catalog store
+    public static final String dcterms = "http://purl.org/dc/terms/";
+    public static final String vann = "http://purl.org/vocab/vann/";
+    public static final String storeReportGraph = reportNS+"lastReport";
+    //file locked by the process that uses the store
+    public static final String storeLockName = "vocablite.lock";
+    public static final String storeFile = reportNS+"publishedFile";
+    public static final String storeLicenseTitle = reportNS+"licenseTitle";
+    public static final String storeLOVPage = reportNS+"lovPage";
     //status
     public static final String errorStatus = reportNS+"error";
     public static final String warningStatus = reportNS+"warning";
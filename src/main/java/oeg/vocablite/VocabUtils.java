@@ -17,12 +17,14 @@ package oeg.vocablite;
 
 
 import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.ontology.Individual;
 import com.hp.hpl.jena.ontology.OntClass;
 import com.hp.hpl.jena.ontology.OntModel;
 import com.hp.hpl.jena.ontology.OntProperty;
-import com.hp.hpl.jena.ontology.OntResource;
 import com.hp.hpl.jena.ontology.OntTools.Path;
+import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryExecutionFactory;
@@ -31,11 +33,14 @@ import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.query.Syntax;
 import com.hp.hpl.jena.rdf.model.Literal;
+import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
-import com.hp.hpl.jena.util.FileManager;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -49,13 +54,16 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.HttpClientBuilder;
+import javax.xml.stream.XMLStreamException;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
 
 /**
  * Class for defining common operations for vocabularies: if the vocab is in LOV, 
@@ -70,15 +78,15 @@ public class VocabUtils {
         "text/turtle","text/n3", "application/n-quads"};
     
     
+    /**
+     * Method that returns the serializations available for a vocabulary URI 
+     * (content negotiation). The serializations are requested concurrently.
+     * @param uri
+     * @return 
+     */
     public static ArrayList<String> getSerializationsOfVocab(String uri){
-        ArrayList<String> supportedSerializations = new ArrayList<>();
         //try for: application/rdf+xml, text/html, text/turtle, text/n3
-        for(String currentSer:serializations){
-            if(hasSerialization(uri, currentSer)){
-                supportedSerializations.add(currentSer);
-            }
-        }
-        return supportedSerializations;
+        return HttpUtils.getSupportedSerializations(uri, serializations);
     }
     
     /**
@@ -88,23 +96,7 @@ public class VocabUtils {
      * @return 
      */
     public static boolean hasSerialization(String uri, String serialization){
-        try {
- 
-            HttpClient client = HttpClientBuilder.create().build();
-            HttpGet request = new HttpGet(uri);
-            request.setHeader("Accept", serialization);
-            HttpResponse response = client.execute(request);
-            if(response.getStatusLine().getStatusCode() == 200){
-                String contentType = response.getFirstHeader("Content-Type").getValue();
-                if(contentType.contains(serialization)){
-//                    System.out.println(response.getLastHeader("Location").getValue());
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error while doing http get: "+serialization+" in "+uri+" "+ e.getMessage());
-        }
-        return false;
+        return HttpUtils.hasSerialization(uri, serialization);
     }
     
     /**
@@ -136,21 +128,228 @@ public class VocabUtils {
         }
     }
     
+    private static PersistentCache lovCache;
+    
+    private static synchronized PersistentCache getLOVCache(){
+        if(lovCache == null){
+            Configuration c = Configuration.getInstance();
+            lovCache = new PersistentCache(new File(c.getLovCachePath()), c.getCacheTTL(), 
+                    TextConstants.cacheFailureTTL, TextConstants.cacheMaxEntries);
+        }
+        return lovCache;
+    }
+    
+    /**
+     * Saves the LOV answers, so they can be reused in the next run.
+     */
+    public static void saveLOVCache(){
+        if(lovCache != null){
+            lovCache.save();
+        }
+    }
+    
+    /**
+     * Batch version of getLOVPage: looks for all the vocabularies in LOV with
+     * one query per chunk of TextConstants.lovBatchSize vocabularies. 
+     * URIs are matched exactly (with and without the trailing # or /).
+     * The answers are cached between runs.
+     * @param vocabs
+     * @return number of vocabularies found in LOV.
+     */
+    public static int getLOVPages(List<Vocabulary> vocabs){
+        return getLOVPages(vocabs, Configuration.getInstance().getLovEndpoint());
+    }
+    
+    /**
+     * @param vocabs
+     * @param endpoint SPARQL endpoint of LOV
+     * @return number of vocabularies found in LOV.
+     */
+    public static int getLOVPages(List<Vocabulary> vocabs, final String endpoint){
+        return getLOVPages(vocabs, new LOVSource() {
+            @Override
+            public QueryExecution create(Query q) {
+                return QueryExecutionFactory.sparqlService(endpoint, q);
+            }
+        });
+    }
+    
+    /**
+     * @param vocabs
+     * @param lov local copy of LOV (e.g., a test dataset with the 
+     * http://lov.okfn.org/dataset/lov graph)
+     * @return number of vocabularies found in LOV.
+     */
+    public static int getLOVPages(List<Vocabulary> vocabs, final Dataset lov){
+        return getLOVPages(vocabs, new LOVSource() {
+            @Override
+            public QueryExecution create(Query q) {
+                return QueryExecutionFactory.create(q, lov);
+            }
+        });
+    }
+    
+    private static int getLOVPages(List<Vocabulary> vocabs, LOVSource source){
+        PersistentCache cache = getLOVCache();
+        boolean offline = Configuration.getInstance().isOffline();
+        int found = 0;
+        ArrayList<Vocabulary> pending = new ArrayList<>();
+        for(Vocabulary v:vocabs){
+            String uri = v.getUri();
+            if(uri == null || !uri.startsWith("http") || !isValidIRI(uri)){
+                continue;
+            }
+            PersistentCache.Entry e = cache.get("lov "+uri, offline);
+            if(e != null){
+                //"" means that the vocab is not in LOV
+                if(!e.isFailure() && !e.getValue().equals("")){
+                    setLOVPage(v, e.getValue());
+                    found++;
+                }
+            }else if(!offline){
+                pending.add(v);
+            }
+        }
+        for(int i=0; i<pending.size(); i+=TextConstants.lovBatchSize){
+            List<Vocabulary> chunk = pending.subList(i, Math.min(i+TextConstants.lovBatchSize, pending.size()));
+            LinkedHashSet<String> uris = new LinkedHashSet<>();
+            for(Vocabulary v:chunk){
+                uris.addAll(getLOVVariants(v.getUri()));
+            }
+            HashMap<String, String> prefixes = new HashMap<>();
+            try{
+                QueryExecution qe = source.create(QueryFactory.create(Queries.vocabsInLOV(uris), Syntax.syntaxARQ));
+                try{
+                    ResultSet results = qe.execSelect();
+                    while(results.hasNext()){
+                        QuerySolution qs = results.next();
+                        prefixes.put(qs.getResource("vocabURI").getURI(), qs.getLiteral("vocabPrefix").getString());
+                    }
+                }finally{
+                    qe.close();
+                }
+            }catch(Exception ex){
+                System.err.println("Error while querying LOV: "+ex.getMessage());
+                for(Vocabulary v:chunk){
+                    cache.putFailure("lov "+v.getUri());
+                }
+                continue;
+            }
+            for(Vocabulary v:chunk){
+                String prefix = "";
+                for(String variant:getLOVVariants(v.getUri())){
+                    if(prefixes.containsKey(variant)){
+                        prefix = prefixes.get(variant);
+                        break;
+                    }
+                }
+                cache.put("lov "+v.getUri(), prefix);
+                if(!prefix.equals("")){
+                    setLOVPage(v, prefix);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+    
+    private static void setLOVPage(Vocabulary v, String prefix){
+        v.setPrefix(prefix);
+        v.setLovURI("http://lov.okfn.org/dataset/lov/details/vocabulary_"+ prefix+".html");
+    }
+    
+    /**
+     * URIs under which a vocabulary may be registered in LOV.
+     */
+    private static List<String> getLOVVariants(String uri){
+        ArrayList<String> variants = new ArrayList<>();
+        variants.add(uri);
+        if(uri.endsWith("#") || uri.endsWith("/")){
+            variants.add(uri.substring(0, uri.length()-1));
+        }else{
+            variants.add(uri+"#");
+            variants.add(uri+"/");
+        }
+        return variants;
+    }
+    
+    /**
+     * Characters that cannot be written in a SPARQL IRI.
+     */
+    private static boolean isValidIRI(String uri){
+        for(char c:uri.toCharArray()){
+            if(c <= ' ' || "<>\"{}|^`\\".indexOf(c) != -1){
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Where the LOV queries are sent.
+     */
+    private interface LOVSource{
+        QueryExecution create(Query q);
+    }
+    
     /**
      * Method that, given a URI loads the vocabulary available metadata.
+     * The header of RDF/XML files is scanned without parsing the whole file
+     * when possible (see Configuration.isHeaderScan). Large files (see Configuration.getLargeFileThreshold) are always read
+     * with the streaming extraction. The memory needed to parse the file is
+     * reserved in the MemoryBudget first, so the huge files wait for each other.
      * @param vocabPath
      * @return 
      */
     public static Vocabulary getVocabularyMetadata(File vocabPath){
-        
-        OntModel currentModel = ModelFactory.createOntologyModel();
+        if(Configuration.getInstance().isHeaderScan()){
+            Vocabulary v = scanVocabularyMetadata(vocabPath);
+            if(v != null){
+                return v;
+            }
+        }
+        boolean large = isLargeFile(vocabPath);
+        boolean streaming = large || Configuration.getInstance().isStreamingExtraction();
+        if(large){
+            System.out.println("Large file ("+vocabPath.length()/TextConstants.MB+" MB): only the header will be extracted");
+        }
+        long size = vocabPath.length();
+        int reserved = MemoryBudget.getInstance().acquire(streaming ? size : size*TextConstants.modelMemoryFactor);
+        try{
+            if(streaming){
+                return getVocabularyMetadataStreaming(vocabPath);
+            }
+            return getVocabularyMetadataFromModel(vocabPath);
+        }finally{
+            MemoryBudget.getInstance().release(reserved);
+        }
+    }
+    
+    /**
+     * @param f
+     * @return whether a vocabulary file is read as a large file.
+     */
+    static boolean isLargeFile(File f){
+        return f.length() > Configuration.getInstance().getLargeFileThreshold();
+    }
+    
+    /**
+     * Method that loads the available metadata of a vocabulary from a model
+     * with all its triples.
+     * @param vocabPath
+     * @return 
+     */
+    private static Vocabulary getVocabularyMetadataFromModel(File vocabPath){
+        OntModel currentModel = ModelFactory.createOntologyModel(Configuration.getInstance().getModelSpec());
         Vocabulary vocabulary = new Vocabulary();  
         vocabulary.setVocabPath(vocabPath.getAbsolutePath());
         vocabulary.setName(vocabPath.getName());
         readModel(currentModel, vocabulary);
               
         //we assume only one ontology per file.
-        OntResource onto = currentModel.getOntClass("http://www.w3.org/2002/07/owl#Ontology").listInstances().next();
+        //(owl:Ontology is not declared as a class when there is no inference)
+        long start = System.nanoTime();
+        Resource onto = currentModel.listResourcesWithProperty(RDF.type, OWL.Ontology).next();
         Iterator it = onto.listProperties();//model.getResource("http://purl.org/net/wf-motifs").listProperties();
         String propertyName, value, language;
         while(it.hasNext()){
@@ -165,72 +364,42 @@ public class VocabUtils {
             }catch(Exception e){
                 value = s.getObject().asResource().getURI();
             }
-            // fill in the properties here.
-            switch (propertyName) {
-                case "description":
-                    if(language.equals("en")||vocabulary.getDescription()==null
-                            ||vocabulary.getDescription().equals("")){
-                        vocabulary.setDescription(value);
-                    }
-                    break;
-                case "abstract":
-                    if(language.equals("en")||vocabulary.getDescription()==null
-                            ||vocabulary.getDescription().equals("")){
-                        vocabulary.setDescription(value);
-                    }
-                    break;
-                case "title"://by default we take the english desc
-                    if(language.equals("en")||vocabulary.getTitle()==null
-                            ||vocabulary.getTitle().equals("")){
-                        vocabulary.setTitle(value);
-                    }
-                    break;
-                case "preferredNamespacePrefix":
-                    vocabulary.setPrefix(value);
-                    break;
-                case "preferredNamespaceUri":
-                    vocabulary.setUri(value);
-                    break;
-                case "license":
-                    //if(vocabulary.getLicense().equals("unknown")){
-                        vocabulary.setLicense(value);
-                        vocabulary.setLicenseTitle(value);
-                    //}
-                    break;
-                case "rights":
-                    //if(vocabulary.getLicense().equals("unknown")){
-                        vocabulary.setLicense(value);
-                        vocabulary.setLicenseTitle(value);
-                    //}
-                    break;
-                case "created":
-                    vocabulary.setCreationDate(value);
-                    break;
-                case "modified":
-                    vocabulary.setLastModifiedDate(value);
-                    break;
-            }
-            
+            setMetadataProperty(vocabulary, propertyName, value, language);
         }
+        Metrics.getInstance().record(vocabulary, Metrics.Phase.HEADER, start);
         //Licensius call to retrieve the license
-        if(vocabulary.getUri()!=null &&!"".equals(vocabulary.getUri())){
-            String oldLicense = vocabulary.getLicense();
-            try{
-                vocabulary.setLicenseWithService(vocabulary.getUri());
-            }catch(Exception e){
-                Report.getInstance().addWarningForVocab(vocabulary.getUri(), TextConstants.Warning.LICENCE_NOT_FOUND);
-            }
-            if(vocabulary.getLicenseTitle().equals("unknown")){
-                vocabulary.setLicense(oldLicense);
-                vocabulary.setLicenseTitle(oldLicense);
-            }
-        }
+        start = System.nanoTime();
+        setLicense(vocabulary);
+        Metrics.getInstance().record(vocabulary, Metrics.Phase.LICENSE, start);
         //look for languages used in the vocabulary
-        
-        ArrayList <String> languagesUsed = new ArrayList<>();
         try {
-    	    Query languagesQ = QueryFactory.create(Queries.languagesUsed);
-            QueryExecution qe = QueryExecutionFactory.create(languagesQ, currentModel);
+            start = System.nanoTime();
+            vocabulary.setLanguages(getLanguagesUsed(currentModel));
+            Metrics.getInstance().record(vocabulary, Metrics.Phase.LANGUAGES, start);
+        }
+        catch (java.lang.Exception d){
+            System.err.println("error when getting the languages: " + d.getMessage());
+        }
+        if(vocabulary.getUri() == null){
+            vocabulary.setUri(vocabPath.getAbsolutePath());
+        }
+        //liberate resources    
+        currentModel.close();
+        //LOV (disabled at the moment)
+        //getLOVPage(vocabulary);
+        return vocabulary;
+    }
+    
+    /**
+     * Method that returns the language tags used in the literals of a model.
+     * @param model
+     * @return 
+     */
+    public static ArrayList<String> getLanguagesUsed(Model model){
+        ArrayList <String> languagesUsed = new ArrayList<>();
+        Query languagesQ = QueryFactory.create(Queries.languagesUsed);
+        QueryExecution qe = QueryExecutionFactory.create(languagesQ, model);
+        try{
             ResultSet results = qe.execSelect() ;
             while( results.hasNext())
             {
@@ -238,27 +407,210 @@ public class VocabUtils {
               RDFNode x = soln.get("langUsed") ;       // Get a result variable by name.
               if(x != null){
             	  if (!x.toString().isEmpty()){
-            		  languagesUsed.add(x.toString());
+            		  languagesUsed.add(Languages.intern(x.toString()));
 //            		  System.out.println("Language added: " + x);
             	  } 
               }
             }
-            vocabulary.setLanguages(languagesUsed);
+        }finally{
             qe.close();
         }
-        catch (java.lang.Exception d){
-            System.err.println("error when getting the languages: " + d.getMessage());
+        return languagesUsed;
+    }
+    
+    /**
+     * Method that loads the available metadata of a vocabulary in a single
+     * pass over the file, without building a model in memory. Only the header
+     * of the ontology and the language tags used in the file are kept.
+     * @param vocabPath
+     * @return 
+     */
+    public static Vocabulary getVocabularyMetadataStreaming(File vocabPath){
+        Vocabulary vocabulary = new Vocabulary();  
+        vocabulary.setVocabPath(vocabPath.getAbsolutePath());
+        vocabulary.setName(vocabPath.getName());
+        OntologyHeaderSink sink = new OntologyHeaderSink();
+        readModel(sink, vocabulary);
+        if(!sink.hasOntology()){
+            throw new NoSuchElementException("No owl:Ontology declared in "+vocabPath.getName());
+        }
+        return setMetadataFromHeader(vocabulary, sink.getHeader(), sink.getLanguages());
+    }
+    
+    /**
+     * Method that loads the available metadata of an RDF/XML vocabulary 
+     * reading only the beginning of the file (see RDFXMLHeaderScanner).
+     * @param vocabPath
+     * @return the vocabulary, or null if the file is not in RDF/XML, its
+     * header cannot be read by the scanner or the scanned header has no title
+     * or description (the file has to be parsed).
+     */
+    private static Vocabulary scanVocabularyMetadata(File vocabPath){
+        InputStream in = null;
+        try{
+            in = openVocab(vocabPath);
+            if(!FormatDetector.RDF_XML.equals(sniff(in))){
+                return null;
+            }
+            long start = System.nanoTime();
+            RDFXMLHeaderScanner scanner = new RDFXMLHeaderScanner(Configuration.getInstance().getLanguageSample());
+            if(!scanner.scan(in)){
+                System.out.println("The header could not be scanned, parsing the whole vocabulary");
+                return null;
+            }
+            if(!hasTitleAndDescription(scanner.getHeader())){
+                //they may be declared after the sample
+                System.out.println("No title or description in the scanned header, parsing the whole vocabulary");
+                return null;
+            }
+            Vocabulary vocabulary = new Vocabulary();
+            vocabulary.setVocabPath(vocabPath.getAbsolutePath());
+            vocabulary.setName(vocabPath.getName());
+            long time = (System.nanoTime()-start)/1000000;
+            Metrics.getInstance().record(vocabulary, Metrics.Phase.PARSE, start);
+            System.out.println("Vocab header scanned in "+FormatDetector.RDF_XML+" ("+time+" ms)");
+            ArrayList<String> vocabSerialization = new ArrayList<String>();
+            vocabSerialization.add(FormatDetector.RDF_XML);
+            vocabulary.setSupportedSerializations(vocabSerialization);
+            vocabulary.setParsingTime(time);
+            return setMetadataFromHeader(vocabulary, scanner.getHeader(), scanner.getLanguages());
+        }catch(IOException | XMLStreamException e){
+            System.out.println("The header could not be scanned ("+e.getMessage()+"), parsing the whole vocabulary");
+            return null;
+        }finally{
+            if(in != null){
+                closeQuietly(in);
+            }
+        }
+    }
+    
+    /**
+     * @param header triples of the header of an ontology
+     * @return whether the header has a title and a description (or abstract).
+     */
+    private static boolean hasTitleAndDescription(List<Triple> header){
+        boolean title = false, description = false;
+        for(Triple t:header){
+            String p = t.getPredicate().getLocalName();
+            title |= "title".equals(p);
+            description |= "description".equals(p) || "abstract".equals(p);
         }
+        return title && description;
+    }
+    
+    /**
+     * Method that fills in the metadata of a vocabulary from the triples of
+     * the header of the ontology and the languages used.
+     * @param vocabulary
+     * @param header
+     * @param languages
+     * @return the vocabulary
+     */
+    private static Vocabulary setMetadataFromHeader(Vocabulary vocabulary, List<Triple> header, ArrayList<String> languages){
+        long start = System.nanoTime();
+        for(Triple t:header){
+            Node o = t.getObject();
+            String value, language = "";
+            if(o.isLiteral()){
+                value = o.getLiteralLexicalForm();
+                language = o.getLiteralLanguage();
+            }else if(o.isURI()){
+                value = o.getURI();
+            }else{
+                continue;
+            }
+            setMetadataProperty(vocabulary, t.getPredicate().getLocalName(), value, language);
+        }
+        Metrics.getInstance().record(vocabulary, Metrics.Phase.HEADER, start);
+        //Licensius call to retrieve the license
+        start = System.nanoTime();
+        setLicense(vocabulary);
+        Metrics.getInstance().record(vocabulary, Metrics.Phase.LICENSE, start);
+        start = System.nanoTime();
+        vocabulary.setLanguages(languages);
+        Metrics.getInstance().record(vocabulary, Metrics.Phase.LANGUAGES, start);
         if(vocabulary.getUri() == null){
-            vocabulary.setUri(vocabPath.getAbsolutePath());
+            vocabulary.setUri(vocabulary.getVocabPath());
         }
-        //liberate resources    
-        currentModel.close();
-        //LOV (disabled at the moment)
-        //getLOVPage(vocabulary);
         return vocabulary;
     }
     
+    /**
+     * Method that fills in a property of the vocabulary from the header of
+     * the ontology.
+     * @param vocabulary
+     * @param propertyName local name of the property in the ontology header
+     * @param value
+     * @param language 
+     */
+    private static void setMetadataProperty(Vocabulary vocabulary, String propertyName, String value, String language){
+        // fill in the properties here.
+        switch (propertyName) {
+            case "description":
+                if(language.equals("en")||vocabulary.getDescription()==null
+                        ||vocabulary.getDescription().equals("")){
+                    vocabulary.setDescription(value);
+                }
+                break;
+            case "abstract":
+                if(language.equals("en")||vocabulary.getDescription()==null
+                        ||vocabulary.getDescription().equals("")){
+                    vocabulary.setDescription(value);
+                }
+                break;
+            case "title"://by default we take the english desc
+                if(language.equals("en")||vocabulary.getTitle()==null
+                        ||vocabulary.getTitle().equals("")){
+                    vocabulary.setTitle(value);
+                }
+                break;
+            case "preferredNamespacePrefix":
+                vocabulary.setPrefix(value);
+                break;
+            case "preferredNamespaceUri":
+                vocabulary.setUri(value);
+                break;
+            case "license":
+                //if(vocabulary.getLicense().equals("unknown")){
+                    vocabulary.setLicense(value);
+                    vocabulary.setLicenseTitle(value);
+                //}
+                break;
+            case "rights":
+                //if(vocabulary.getLicense().equals("unknown")){
+                    vocabulary.setLicense(value);
+                    vocabulary.setLicenseTitle(value);
+                //}
+                break;
+            case "created":
+                vocabulary.setCreationDate(value);
+                break;
+            case "modified":
+                vocabulary.setLastModifiedDate(value);
+                break;
+        }
+    }
+    
+    /**
+     * Method that asks the Licensius service for the license of the vocabulary.
+     * If the service does not know it, the license declared in the vocabulary is kept.
+     * @param vocabulary 
+     */
+    private static void setLicense(Vocabulary vocabulary){
+        if(vocabulary.getUri()!=null &&!"".equals(vocabulary.getUri())){
+            String oldLicense = vocabulary.getLicense();
+            try{
+                vocabulary.setLicenseWithService(vocabulary.getUri());
+            }catch(Exception e){
+                Report.getInstance().addWarningForVocab(vocabulary.getUri(), TextConstants.Warning.LICENCE_NOT_FOUND);
+            }
+            if(vocabulary.getLicenseTitle().equals("unknown")){
+                vocabulary.setLicense(oldLicense);
+                vocabulary.setLicenseTitle(oldLicense);
+            }
+        }
+    }
+    
     public static void copyLocalResource(String resourceName, File dest)  {
         try{
             copy(VocabUtils.class.getResourceAsStream(resourceName), dest);
@@ -268,19 +620,14 @@ public class VocabUtils {
     }
     
     public static void copyExternalResource(String path, File dest) {
-        try{
-            InputStream is = new FileInputStream(path);
-            copy(is, dest);
-        }catch(Exception e){
-            System.err.println("Exception while copying "+path+e.getMessage());
-        }
+        Publisher.publish(new File(path), dest, TextConstants.PublishMode.COPY);
     }
     
     public static void copy(InputStream is, File dest)throws Exception{
         OutputStream os = null;
         try {
             os = new FileOutputStream(dest);
-            byte[] buffer = new byte[1024];
+            byte[] buffer = new byte[64*1024];
             int length;
             while ((length = is.read(buffer)) > 0) {
                 os.write(buffer, 0, length);
@@ -392,33 +739,35 @@ public class VocabUtils {
      */
     public static void unZipIt(String resourceName, String outputFolder){
  
-     byte[] buffer = new byte[1024];
+     byte[] buffer = new byte[64*1024];
+     int files = 0;
  
      try{
     	ZipInputStream zis = 
-    		new ZipInputStream(VocabUtils.class.getResourceAsStream(resourceName));
+    		new ZipInputStream(new BufferedInputStream(VocabUtils.class.getResourceAsStream(resourceName), 64*1024));
     	ZipEntry ze = zis.getNextEntry();
  
     	while(ze!=null){
  
     	   String fileName = ze.getName();
            File newFile = new File(outputFolder + File.separator + fileName);
-           System.out.println("file unzip : "+ newFile.getAbsoluteFile());
            if (ze.isDirectory()){
-                String temp = newFile.getAbsolutePath();
-                new File(temp).mkdirs();
+                newFile.mkdirs();
            }
            else{
+                newFile.getParentFile().mkdirs();
                 FileOutputStream fos = new FileOutputStream(newFile);
                 int len; while ((len = zis.read(buffer)) > 0) {
                 fos.write(buffer, 0, len); }
                 fos.close();
+                files++;
            }  
             ze = zis.getNextEntry();
     	}
  
         zis.closeEntry();
     	zis.close();
+        System.out.println(files+" files extracted from "+resourceName);
  
     }catch(IOException ex){
         System.err.println("Error while extracting the reosurces: "+ex.getMessage());
@@ -496,7 +845,7 @@ public class VocabUtils {
      * Encoding of the name to avoid any trouble with spacial characters and spaces
      * @param name
      */
-    private static String encode(String name){
+    static String encode(String name){
         name = name.replace("http://","");
         String prenom = name.substring(0, name.indexOf("/")+1);
         //remove tabs and new lines
@@ -553,27 +902,152 @@ public class VocabUtils {
      * @param ontoPath
      * @param ontoURL 
      */
-    private static void readModel(OntModel model, Vocabulary v){
-        String[] ser = {"RDF/XML", "TURTLE", "N3"};
-        for(String s:ser){
-            InputStream in;
+    private static void readModel(final OntModel model, Vocabulary v){
+        readVocab(v, new RDFTarget() {
+            @Override
+            public void parse(InputStream in, String serialization) {
+                model.read(in, null, serialization);
+            }
+            @Override
+            public void reset() {
+                model.removeAll();
+            }
+        });
+    }
+    
+    /**
+     * Same as readModel, but the triples are sent to a sink instead of a model.
+     * @param sink
+     * @param v 
+     */
+    private static void readModel(final OntologyHeaderSink sink, Vocabulary v){
+        readVocab(v, new RDFTarget() {
+            @Override
+            public void parse(InputStream in, String serialization) {
+                RDFDataMgr.parse(sink, in, RDFLanguages.nameToLang(serialization));
+            }
+            @Override
+            public void reset() {
+                sink.reset();
+            }
+        });
+    }
+    
+    /**
+     * Method that parses the file of a vocabulary. The serialization is detected
+     * from the first bytes of the file (and its extension), so in most cases 
+     * the file is read only once. Other serializations are only tried when 
+     * the detection is not conclusive.
+     * The detected serialization and the parsing time are stored in the vocabulary.
+     * @param v
+     * @param target 
+     */
+    private static void readVocab(Vocabulary v, RDFTarget target){
+        File f = new File(v.getVocabPath());
+        InputStream in;
+        try{
+            in = openVocab(f);
+        }catch(IOException e){
+            System.err.println("Error: Ontology file not found");
+            return;
+        }
+        ArrayList<String> candidates = new ArrayList<>();
+        try{
+            String detected = sniff(in);
+            if(detected != null){
+                candidates.add(detected);
+                //N3 is a superset of Turtle
+                if(detected.equals(FormatDetector.TURTLE)){
+                    candidates.add(FormatDetector.N3);
+                }
+            }else{
+                String guess = FormatDetector.fromExtension(f.getName());
+                if(guess != null){
+                    candidates.add(guess);
+                }
+                for(String s:FormatDetector.serializations){
+                    if(!candidates.contains(s)){
+                        candidates.add(s);
+                    }
+                }
+            }
+        }catch(IOException e){
+            System.err.println("Could not read the ontology "+e.getMessage());
+            closeQuietly(in);
+            return;
+        }
+        for(int i=0; i<candidates.size(); i++){
+            String s = candidates.get(i);
             try{
-                in = FileManager.get().open(v.getVocabPath());
-                if (in == null) {
-                    System.err.println("Error: Ontology file not found");
-                    return;
+                if(i>0){
+                    //previous attempt failed: start again
+                    target.reset();
+                    in = openVocab(f);
                 }
-                model.read(in, null, s);
-                System.out.println("Vocab loaded in "+s);
+                long start = System.nanoTime();
+                target.parse(in, s);
+                long time = (System.nanoTime()-start)/1000000;
+                Metrics.getInstance().record(v, Metrics.Phase.PARSE, start);
+                System.out.println("Vocab loaded in "+s+" ("+time+" ms)");
                 ArrayList<String> vocabSerialization = new ArrayList<String>();
                 vocabSerialization.add(s);
                 v.setSupportedSerializations(vocabSerialization);
+                v.setParsingTime(time);
                 break;
             }catch(Exception e){
                 System.err.println("Could not open the ontology in "+s);
+            }finally{
+                closeQuietly(in);
             }
         }
-        
+    }
+    
+    /**
+     * Detects the serialization of a vocabulary from its first bytes. The 
+     * stream is reset to the beginning.
+     * @param in
+     * @return the serialization, or null if it cannot be detected.
+     * @throws IOException 
+     */
+    private static String sniff(InputStream in) throws IOException{
+        byte[] head = new byte[FormatDetector.sniffSize];
+        in.mark(FormatDetector.sniffSize);
+        int length = 0, read;
+        while(length < head.length && (read = in.read(head, length, head.length-length)) > 0){
+            length+=read;
+        }
+        in.reset();
+        return FormatDetector.fromContent(head, length);
+    }
+    
+    /**
+     * Opens the file of a vocabulary. Large files are memory-mapped.
+     * @param f
+     * @return
+     * @throws IOException 
+     */
+    private static InputStream openVocab(File f) throws IOException{
+        if(isLargeFile(f)){
+            return new MappedInputStream(f);
+        }
+        return new BufferedInputStream(new FileInputStream(f), 65536);
+    }
+    
+    private static void closeQuietly(InputStream in){
+        try{
+            in.close();
+        }catch(IOException e){}
+    }
+    
+    /**
+     * Destination of the triples of a vocabulary being parsed.
+     */
+    private interface RDFTarget{
+        void parse(InputStream in, String serialization);
+        /**
+         * Removes the triples of a failed attempt.
+         */
+        void reset();
     }
     
     
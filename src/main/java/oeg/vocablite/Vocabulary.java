@@ -16,8 +16,9 @@
 package oeg.vocablite;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 
 
 
@@ -44,6 +45,8 @@ public class Vocabulary {
     private String creationDate;
     private String lastModifiedDate;
     private String vocabPath;//path of the vocabulary in the repo.
+    private long parsingTime;//milliseconds needed to parse the vocabulary
+    private final EnumMap<Metrics.Phase, Long> phaseTimes = new EnumMap<>(Metrics.Phase.class);//ns spent in each phase
 
     public Vocabulary(){
         
@@ -221,6 +224,55 @@ public class Vocabulary {
         this.vocabPath = vocabPath;
     }
 
+    public long getParsingTime() {
+        return parsingTime;
+    }
+
+    public void setParsingTime(long parsingTime) {
+        this.parsingTime = parsingTime;
+    }
+
+    /**
+     * Adds time to a phase of the processing of the vocabulary.
+     * @param p
+     * @param time ns
+     */
+    public synchronized void addPhaseTime(Metrics.Phase p, long time) {
+        Long t = phaseTimes.get(p);
+        phaseTimes.put(p, t == null ? time : t+time);
+    }
+
+    /**
+     * @return ns spent in each phase (only the phases of this run).
+     */
+    public synchronized EnumMap<Metrics.Phase, Long> getPhaseTimes() {
+        return new EnumMap<>(phaseTimes);
+    }
+
+    /**
+     * Removes the times of the previous run (the vocabulary is reused when 
+     * its file has not changed).
+     */
+    public synchronized void resetPhaseTimes() {
+        phaseTimes.clear();
+    }
+
+    /**
+     * Adds a warning to the report for each language tag that is not recognized.
+     * Called once, when the metadata is extracted (the warnings are saved in
+     * the manifest with the rest of the warnings of the vocabulary).
+     */
+    public void reportUnknownLanguages() {
+        if(languages!=null){
+            for(String lang: languages){
+                if(Languages.getLanguageURI(lang) == null){
+                    //language not recognized -> add to log
+                    Report.getInstance().addWarningForVocab(uri, TextConstants.Warning.LANG_NOT_FOUND);
+                }
+            }
+        }
+    }
+
     public void setName(String name) {
         this.name = name;
     }
@@ -249,7 +301,25 @@ public class Vocabulary {
      * @return 
      */
     public String getHTMLSerializationAsRow(String id, File out){
-        String html = ("<tr id=\"tr"+id+"\">\n");
+        StringBuilder html = new StringBuilder();
+        try {
+            writeHTMLRow(id, out, html);
+        } catch (IOException e) {
+            //not thrown by StringBuilder
+        }
+        return html.toString();
+    }
+    
+    /**
+     * Method that writes the html serialization of the vocabulary (a row of
+     * the table) in an output.
+     * @param id id for the vocab in the table
+     * @param out
+     * @param html where the row is written
+     * @throws IOException 
+     */
+    public void writeHTMLRow(String id, File out, Appendable html) throws IOException{
+        html.append("<tr id=\"tr").append(id).append("\">\n");
         //URI and title
         String ontURI = this.uri;
         String ontTitle = this.getTitle();
@@ -257,26 +327,26 @@ public class Vocabulary {
         if(ontTitle == null || ontTitle.equals("")){
             ontTitle = "Undefined";
         }
-        html +=("<td><a href = \""+ ontURI + "\" target=\"_blank\">" + ontTitle + "</a> </td>");
+        html.append("<td><a href = \"").append(ontURI).append("\" target=\"_blank\">").append(ontTitle).append("</a> </td>");
 //code for including oops evaluations (deactivated at the moment)
 //<a href = \"ontologies/" + localURL + ".html\" target=\"_blank\"><span class=\"glyphicon glyphicon-info-sign\" data-toggle=\"tooltip\" data-placement=\"bottom\" title=\"More information about this vocabulary\"/></a></td>\n");
 
         //Serializations
-        html+="<td>\n";
+        html.append("<td>\n");
         if(supportedSerializations!=null){
-            //here we will just have 1
-            VocabUtils.copyExternalResource(this.vocabPath, new File(out.getAbsolutePath()+File.separator+"ontologies"+File.separator+name));
+            //here we will just have 1 (the file is published by the Publisher)
             String s = supportedSerializations.get(0);//only the current serialization
             //for(String s:this.supportedSerializations){
-            html+="<a href=\"ontologies/"+this.name+"\"><span class=\"label label-primary\">"+s.replace("application/", "").replace("text/", "")+"</span></a>\n";
+            html.append("<a href=\"ontologies/").append(this.name).append("\"><span class=\"label label-primary\">")
+                    .append(s.replace("application/", "").replace("text/", "")).append("</span></a>\n");
             //}
         }
-        html+="</td>\n";
+        html.append("</td>\n");
         //License
-        html+=("<td>");
+        html.append("<td>");
         
         if (this.licenseTitle == null || this.licenseTitle.toLowerCase().equals("unknown")){      
-            html+= "<span class=\"label label-default\">Undefined</span>";        
+            html.append("<span class=\"label label-default\">Undefined</span>");        
         }
         else{
            String licenseTitleReduced = licenseTitle.replace("Creative Commons ", "");
@@ -284,63 +354,49 @@ public class Vocabulary {
                licenseTitleReduced = licenseTitleReduced.substring(0, TextConstants.shortLicense-1);
                licenseTitleReduced += "...";
            }
-           html+= "<a href=\"" + this.license + "\" target=\"_blank\"> <span class=\"label label-success\">" + licenseTitleReduced + "</span> </a>";        
+           html.append("<a href=\"").append(this.license).append("\" target=\"_blank\"> <span class=\"label label-success\">")
+                   .append(licenseTitleReduced).append("</span> </a>");        
         }
 
-        html+=("</td>\n");
+        html.append("</td>\n");
 
         //Natural Language
-        html+=("<td>");
+        html.append("<td>");
         if(languages!=null){
             for(String lang: languages){
-            	HashMap <String, String> mapLang = new Languages().getMapLang();
-            	String currLang = lang.substring(0, 2);
-            	if (mapLang.containsKey(currLang)){
-                    String langURI = mapLang.get(currLang);
-                    html+="<a href=\"" + langURI + "\" target=\"_blank\"> <span class=\"label label-primary\">" + lang + "</span></a> ";
-                }
-                else{
-                    //language not recognized -> add to log
-                    Report.getInstance().addWarningForVocab(uri, TextConstants.Warning.LANG_NOT_FOUND);
+                String langURI = Languages.getLanguageURI(lang);
+            	if (langURI != null){
+                    html.append("<a href=\"").append(langURI).append("\" target=\"_blank\"> <span class=\"label label-primary\">")
+                            .append(lang).append("</span></a> ");
                 }
             }
         }else{
-            html+="<span class=\"label label-default\">Undefined</span>";
+            html.append("<span class=\"label label-default\">Undefined</span>");
         }
-        html+="</td>\n";    
+        html.append("</td>\n");    
         
         
         //description
-        html+="<td>\n";    
+        html.append("<td>\n");    
         if(description!=null){
             if (firstPartDesc.length() < description.length()){        	
-                html+= "<p id=\"collapse"+id+"\" data-toggle=\"collapse\" >\n";
-                html+= firstPartDesc + " ... ";
-                html+= "<a class=\"more"+id+"\">See more</a>\n";
-                html+= "</p>\n";
-                html+= "<script>\n";
-                html+= "$('#collapse"+id+"').click(function () {\n";
-                html+= "if($('a').hasClass('more"+id+"'))\n";
-                html+= "{\n";
-                html+= "$('#collapse"+id+"').html('"+ description.replace("\n", "<br>") +"  <a class=\"less"+id+"\">See less<a>'); \n";
-                        html+= "}\n";
-                        html+= "else\n";
-                        html+= "{      \n";
-                        html+= "$('#collapse"+id+"').html('"+ firstPartDesc.replace("\n", "<br>") + " ... "+" <a  class=\"more"+id+"\">See more</a>'); \n";
-                        html+= "}\n";
-                        html+= "}); \n";
-                html+= "</script>\n";
+                html.append("<p id=\"collapse").append(id).append("\">\n");
+                html.append(firstPartDesc).append(" ... ");
+                html.append("<a class=\"more\">See more</a>\n");
+                html.append("</p>\n");
+                html.append("<p id=\"full").append(id).append("\" style=\"display:none\">\n");
+                html.append(description.replace("\n", "<br>")).append("  <a class=\"less\">See less</a>\n");
+                html.append("</p>\n");
             }
             else{
-                    html+=description.replace("\n", "<br>");
+                html.append(description.replace("\n", "<br>"));
             }
         }
 
-        html+= "</td>\n";
+        html.append("</td>\n");
    
         //finish row
-        html+=("</tr>");        
-        return html;
+        html.append("</tr>");
     }
     
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the vocabularies of a repository as they are processed
+ * (see ProcessRepository.processVocabularies).
+ * @author dgarijo
+ */
+public interface VocabularyHandler {
+
+    /**
+     * Handles a batch of vocabularies. The vocabularies are not kept after
+     * this method returns, unless the handler keeps them.
+     * @param batch vocabularies, in the order of the repository
+     * @throws IOException 
+     */
+    void handle(List<Vocabulary> batch) throws IOException;
+
+}
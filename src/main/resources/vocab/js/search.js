@@ -0,0 +1,163 @@
+/*
+ * Search of the vocabularies of the catalog.
+ * search.json has the tokens of the catalog sorted, and the ids of the
+ * vocabularies of each token (the first id is absolute, the next ones are
+ * the difference with the previous id). catalog.json has the title and the
+ * page of each vocabulary. Both are loaded the first time the search box is
+ * used. A query returns the vocabularies with all its terms (the last term
+ * is searched as a prefix, while it is being typed). The queries are split
+ * with the rules of the tokenizer saved in search.json (the ones used to
+ * build the index).
+ */
+(function () {
+    var maxResults = 20;
+    //maximum number of tokens searched for a prefix
+    var maxExpansion = 500;
+    var minTokenLength = 2;
+    var maxTokenLength = 32;
+    var index = null;
+    var docs = null;
+    //browsers without Unicode property escapes: approximate rules
+    var separator = /[^0-9a-z\u00c0-\uffff]+/;
+    var marks = /[\u0300-\u036f]+/g;
+
+    //rules of the tokenizer of the index (see SearchIndex.tokenize)
+    function configure(rules) {
+        if (!rules) {
+            return;
+        }
+        try {
+            separator = new RegExp(rules.separator, 'u');
+            marks = new RegExp(rules.marks, 'gu');
+        } catch (e) {
+            //the approximate rules are kept
+        }
+        minTokenLength = rules.minLength;
+        maxTokenLength = rules.maxLength;
+    }
+
+    function tokenize(text) {
+        text = text.toLowerCase();
+        if (text.normalize) {
+            text = text.normalize('NFD').replace(marks, '');
+        }
+        var tokens = [];
+        var parts = text.split(separator);
+        for (var i = 0; i < parts.length; i++) {
+            var t = parts[i].substring(0, maxTokenLength);
+            if (t.length >= minTokenLength) {
+                tokens.push(t);
+            }
+        }
+        return tokens;
+    }
+
+    //position of the first token that is not lower than t
+    function lowerBound(tokens, t) {
+        var lo = 0, hi = tokens.length;
+        while (lo < hi) {
+            var mid = (lo + hi) >>> 1;
+            if (tokens[mid] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    function decode(deltas, ids) {
+        var id = 0;
+        for (var i = 0; i < deltas.length; i++) {
+            id += deltas[i];
+            ids[id] = true;
+        }
+    }
+
+    //ids (as keys) of the vocabularies with a token (or a token prefix)
+    function lookup(term, prefix) {
+        var ids = {};
+        var i = lowerBound(index.tokens, term);
+        if (!prefix) {
+            if (index.tokens[i] === term) {
+                decode(index.postings[i], ids);
+            }
+            return ids;
+        }
+        for (var n = 0; i < index.tokens.length && n < maxExpansion
+                && index.tokens[i].lastIndexOf(term, 0) === 0; i++, n++) {
+            decode(index.postings[i], ids);
+        }
+        return ids;
+    }
+
+    function search(query) {
+        var terms = tokenize(query);
+        if (terms.length === 0) {
+            return null;
+        }
+        var result = lookup(terms[terms.length - 1], true);
+        for (var i = 0; i < terms.length - 1; i++) {
+            var ids = lookup(terms[i], false);
+            for (var id in result) {
+                if (!ids[id]) {
+                    delete result[id];
+                }
+            }
+        }
+        var sorted = [];
+        for (var r in result) {
+            sorted.push(+r);
+        }
+        return sorted.sort(function (a, b) { return a - b; });
+    }
+
+    function show(query) {
+        var list = $('#searchResults').empty();
+        var ids = search(query);
+        if (ids === null) {
+            return;
+        }
+        list.append($('<li class="list-group-item active"></li>').text(ids.length + ' vocabularies found'));
+        for (var i = 0; i < ids.length && i < maxResults; i++) {
+            var d = docs[ids[i]];
+            var a = $('<a></a>').attr('href', d.page + '#tr' + d.id).text(d.title || d.uri);
+            list.append($('<li class="list-group-item"></li>').append(a));
+        }
+    }
+
+    function load(done) {
+        if (index !== null) {
+            done();
+            return;
+        }
+        $.when($.getJSON('search.json'), $.getJSON('catalog.json')).done(function (s, c) {
+            index = s[0];
+            configure(index.tokenizer);
+            docs = {};
+            for (var i = 0; i < c[0].length; i++) {
+                docs[c[0][i].id] = c[0][i];
+            }
+            done();
+        });
+    }
+
+    //node (tests of the tokenizer)
+    if (typeof module !== 'undefined' && module.exports) {
+        module.exports = {configure: configure, tokenize: tokenize};
+        return;
+    }
+
+    $(function () {
+        $('#search').on('input', function () {
+            var query = $(this).val();
+            load(function () {
+                show(query);
+            });
+        });
+        //row selected in the results
+        if (location.hash.indexOf('#tr') === 0) {
+            $(location.hash).addClass('info');
+        }
+    });
+})();
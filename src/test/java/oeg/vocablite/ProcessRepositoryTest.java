@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Processing of synthetic repositories (see RepositoryGenerator).
+ * @author dgarijo
+ */
+public class ProcessRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUp() throws IOException{
+        File cache = File.createTempFile("licensius", ".json");
+        cache.delete();
+        cache.deleteOnExit();
+        Configuration.getInstance().setOffline(true);
+        Configuration.getInstance().setLicenseCachePath(cache.getAbsolutePath());
+    }
+
+    private static RepositoryGenerator generator(int vocabs, double malformed){
+        RepositoryGenerator g = new RepositoryGenerator();
+        g.setVocabs(vocabs);
+        g.setClasses(5, 200);
+        g.setMalformedRatio(malformed);
+        return g;
+    }
+
+    @Test
+    public void testSameSeedSameFiles() throws IOException{
+        File a = folder.newFolder("a");
+        File b = folder.newFolder("b");
+        generator(20, 0.2).generate(a);
+        generator(20, 0.2).generate(b);
+        ArrayList<File> filesA = ProcessRepository.getVocabularyFiles(a.getAbsolutePath());
+        ArrayList<File> filesB = ProcessRepository.getVocabularyFiles(b.getAbsolutePath());
+        assertEquals(20, filesA.size());
+        assertEquals(filesA.size(), filesB.size());
+        for(int i=0; i<filesA.size(); i++){
+            File fa = filesA.get(i);
+            File fb = new File(b, a.toURI().relativize(fa.toURI()).getPath());
+            assertTrue(Arrays.equals(Files.readAllBytes(fa.toPath()), Files.readAllBytes(fb.toPath())));
+        }
+    }
+
+    @Test
+    public void testProcessRepository() throws IOException{
+        File repository = folder.newFolder("repository");
+        generator(60, 0).generate(repository);
+        ArrayList<Vocabulary> vocabs = ProcessRepository.processRepositoryFolder(repository.getAbsolutePath(), 4);
+        assertEquals(60, vocabs.size());
+        for(Vocabulary v:vocabs){
+            assertTrue(v.getTitle().startsWith("Vocabulary "));
+            assertNotNull(v.getDescription());
+            assertNotNull(v.getSupportedSerializations());
+        }
+    }
+
+    @Test
+    public void testMalformedFiles() throws IOException{
+        File repository = folder.newFolder("malformed");
+        generator(30, 0.5).generate(repository);
+        ArrayList<Vocabulary> vocabs = ProcessRepository.processRepositoryFolder(repository.getAbsolutePath(), 2);
+        //truncated files are reported (or processed up to the error), they do not stop the rest
+        assertTrue(vocabs.size() > 0);
+        assertTrue(vocabs.size() <= 30);
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.ontology.OntModel;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.ResIterator;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+import org.apache.jena.riot.RDFDataMgr;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the report written by ReportWriter is the same RDF as the
+ * report built with an OntModel (VocabUtils.addIndividual, addProperty and
+ * addDataProperty), as it was created before the report was streamed.
+ * @author dgarijo
+ */
+public class ReportTest {
+    private static final String vocabOk = "http://example.org/ok#";
+    private static final String vocabWarning = "http://example.org/warning/";
+    private static final String vocabError = "/tmp/repository/broken.owl";
+    private static final String vocabBoth = "http://example.org/both";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameRDFAsOntModel() throws IOException{
+        Report.reset();
+        Report r = Report.getInstance();
+        r.addParsingDetails(vocabOk, "RDF/XML", 12);
+        r.addSuccessfulEntry(vocabOk);
+        Vocabulary v = new Vocabulary();
+        v.setUri(vocabOk);
+        v.addPhaseTime(Metrics.Phase.RENDER, 3000000);
+        v.addPhaseTime(Metrics.Phase.PUBLISH, 5000000);
+        r.addPhaseTimes(v);
+        r.addWarningForVocab(vocabWarning, TextConstants.Warning.LICENCE_NOT_FOUND);
+        r.addWarningForVocab(vocabWarning, TextConstants.Warning.LANG_NOT_FOUND);
+        r.addWarningForVocab(vocabWarning, TextConstants.Warning.LANG_NOT_FOUND);
+        r.addErrorForVocab(vocabError, TextConstants.Error.PARSING_ERR);
+        r.addWarningForVocab(vocabBoth, TextConstants.Warning.MISSING_TITLE_OR_DESC_FOR_VOCAB);
+        r.addErrorForVocab(vocabBoth, TextConstants.Error.EXCEPTION_ERROR);
+        String path = new File(folder.getRoot(), "report").getAbsolutePath();
+        r.saveReport(path);
+        Model streamed = RDFDataMgr.loadModel(path+".ttl");
+
+        //the same events in an OntModel
+        ResIterator reports = streamed.listSubjectsWithProperty(RDF.type, streamed.createResource(TextConstants.report));
+        String date = reports.next().getURI().substring(TextConstants.reportNS.length()+"Report".length());
+        assertFalse(reports.hasNext());
+        OntModel m = ModelFactory.createOntologyModel();
+        Date d = new Date(Long.parseLong(date));
+        VocabUtils.addIndividual(m, "Report"+date, TextConstants.report, "Report created on "+d.toString());
+        VocabUtils.addDataProperty(m, "Report"+date, d.toString(), TextConstants.reportDate, XSDDatatype.XSDdateTime);
+        String ok = addEntry(m, date, vocabOk);
+        VocabUtils.addDataProperty(m, ok, "RDF/XML", TextConstants.detectedSerialization);
+        VocabUtils.addDataProperty(m, ok, "12", TextConstants.parsingTime, XSDDatatype.XSDlong);
+        VocabUtils.addProperty(m, ok, TextConstants.successStatus, TextConstants.vocabularyStatus);
+        VocabUtils.addDataProperty(m, ok, "3", Metrics.Phase.RENDER.getReportProperty(), XSDDatatype.XSDlong);
+        VocabUtils.addDataProperty(m, ok, "5", Metrics.Phase.PUBLISH.getReportProperty(), XSDDatatype.XSDlong);
+        String warning = addEntry(m, date, vocabWarning);
+        addProblem(m, warning, "LicenseNotFound", TextConstants.warning, "Warning: A license was not found for vocabulary", TextConstants.warningStatus);
+        addProblem(m, warning, "LanguageNotFound", TextConstants.warning, "Warning: A language was not recognized in vocabulary", TextConstants.warningStatus);
+        String error = addEntry(m, date, vocabError);
+        addProblem(m, error, "ParsingError", TextConstants.error, "Error while parsing the vocabulary", TextConstants.errorStatus);
+        String both = addEntry(m, date, vocabBoth);
+        addProblem(m, both, "MissingTitleOrDesc", TextConstants.warning, "Warning: title or description missing from vocabulary", TextConstants.warningStatus);
+        addProblem(m, both, "GenericError", TextConstants.error, "Error: the vocabulary could not be loaded or processed", TextConstants.errorStatus);
+        VocabUtils.addDataProperty(m, "Report"+date, "1", TextConstants.numberVocabsOK);
+        VocabUtils.addDataProperty(m, "Report"+date, "2", TextConstants.numberVocabsError);
+        VocabUtils.addDataProperty(m, "Report"+date, "2", TextConstants.numberVocabsWarning);
+
+        assertTrue(streamed.isIsomorphicWith(m.getBaseModel()));
+        Report.reset();
+    }
+
+    private static String addEntry(OntModel m, String date, String vocab){
+        String entryID = "Entry"+date+vocab.replace("/", "").replace(".", "").replace(":", "");
+        VocabUtils.addIndividual(m, entryID, TextConstants.entry, "Entry for vocab "+vocab);
+        VocabUtils.addProperty(m, entryID, "Report"+date, TextConstants.isEntryOfReport);
+        VocabUtils.addProperty(m, "Report"+date, entryID, TextConstants.hasEntry);
+        VocabUtils.addProperty(m, entryID, vocab, TextConstants.entrySubject);
+        return entryID;
+    }
+
+    private static void addProblem(OntModel m, String entryID, String problem, String problemClass, String label, String status){
+        VocabUtils.addIndividual(m, problem, problemClass, label);
+        VocabUtils.addProperty(m, entryID, problem, TextConstants.detectedProblem);
+        VocabUtils.addProperty(m, entryID, status, TextConstants.vocabularyStatus);
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generator of synthetic repositories for scale tests. The same seed and
+ * options always produce the same files (byte by byte). It is part of the
+ * tests of vocabLite (test-jar), so it can be used by the tests and by the
+ * benchmarks.
+ * Options:
+ * - number of vocabularies
+ * - size distribution: number of classes per vocabulary, log-uniform between
+ *   a minimum and a maximum (most vocabularies are small, a few are big)
+ * - format mix: weight of each extension (.owl, .rdf, .xml and .rdfs are
+ *   written in RDF/XML, .ttl in Turtle)
+ * - nesting depth of the folders
+ * - language tag density: probability that a literal has a language tag
+ * - malformed ratio: probability that a file is truncated
+ * 
+ * Usage: java -cp benchmarks.jar oeg.vocablite.RepositoryGenerator 
+ * -o outputFolder [-seed 42 -vocabs 1000 -classes 10:5000 -formats owl=3,ttl=3,rdf=1,xml=1,rdfs=1
+ * -depth 3 -langDensity 0.5 -malformed 0.01]
+ * @author dgarijo
+ */
+public class RepositoryGenerator {
+    private static final String[] languages = {"en", "es", "fr", "de", "it", "pt", "en-GB", "zh-Hant", "ja", "nl"};
+    private static final String[] licenses = {"http://creativecommons.org/licenses/by/4.0/",
+        "http://creativecommons.org/licenses/by-sa/4.0/", "http://opendatacommons.org/licenses/odbl/1.0/"};
+    private static final int foldersPerLevel = 4;
+    private long seed = 42;
+    private int vocabs = 1000;
+    private int minClasses = 10;
+    private int maxClasses = 5000;
+    private final LinkedHashMap<String, Integer> formats;
+    private int depth = 3;
+    private double langDensity = 0.5;
+    private double malformedRatio = 0.01;
+
+    public RepositoryGenerator() {
+        formats = new LinkedHashMap<>();
+        formats.put("owl", 3);
+        formats.put("ttl", 3);
+        formats.put("rdf", 1);
+        formats.put("xml", 1);
+        formats.put("rdfs", 1);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setVocabs(int vocabs) {
+        this.vocabs = vocabs;
+    }
+
+    /**
+     * @param minClasses minimum number of classes of a vocabulary
+     * @param maxClasses maximum number of classes of a vocabulary
+     */
+    public void setClasses(int minClasses, int maxClasses) {
+        this.minClasses = Math.max(1, minClasses);
+        this.maxClasses = Math.max(this.minClasses, maxClasses);
+    }
+
+    /**
+     * @param formats extension -> weight (e.g., ttl=3,owl=1)
+     */
+    public void setFormats(Map<String, Integer> formats) {
+        this.formats.clear();
+        this.formats.putAll(formats);
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public void setLangDensity(double langDensity) {
+        this.langDensity = langDensity;
+    }
+
+    public void setMalformedRatio(double malformedRatio) {
+        this.malformedRatio = malformedRatio;
+    }
+
+    /**
+     * Generates the repository.
+     * @param folder folder of the repository
+     * @return total size of the generated files (bytes)
+     * @throws IOException 
+     */
+    public long generate(File folder) throws IOException{
+        int totalWeight = 0;
+        for(int w:formats.values()){
+            totalWeight += w;
+        }
+        long bytes = 0;
+        for(int i=0; i<vocabs; i++){
+            //one generator per file, so each file only depends on the seed and its number
+            Random r = new Random(mix(seed, i));
+            File dir = folder;
+            int level = r.nextInt(depth+1);
+            for(int l=0; l<level; l++){
+                dir = new File(dir, "d"+l+"_"+r.nextInt(foldersPerLevel));
+            }
+            dir.mkdirs();
+            String extension = pickFormat(r, totalWeight);
+            int classes = (int) Math.round(Math.exp(Math.log(minClasses)+r.nextDouble()*(Math.log(maxClasses)-Math.log(minClasses))));
+            File f = new File(dir, "vocab"+i+"."+extension);
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), "UTF-8"), 64*1024);
+            try{
+                if(extension.equals("ttl")){
+                    writeTurtle(out, r, i, classes);
+                }else{
+                    writeRDFXML(out, r, i, classes);
+                }
+            }finally{
+                out.close();
+            }
+            if(r.nextDouble() < malformedRatio){
+                truncate(f, r);
+            }
+            bytes += f.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Seed of a file. Random generators with close seeds return similar 
+     * first numbers, so the seeds are scrambled (splitmix64).
+     */
+    private static long mix(long seed, int i){
+        long z = seed + (i+1)*0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private String pickFormat(Random r, int totalWeight){
+        int n = r.nextInt(totalWeight);
+        for(Map.Entry<String, Integer> e:formats.entrySet()){
+            n -= e.getValue();
+            if(n < 0){
+                return e.getKey();
+            }
+        }
+        return "owl";
+    }
+
+    private String ns(int vocab){
+        return "http://example.org/repository/"+seed+"/vocab"+vocab+"#";
+    }
+
+    private String language(Random r){
+        return r.nextDouble() < langDensity ? languages[r.nextInt(languages.length)] : null;
+    }
+
+    private void writeTurtle(Writer out, Random r, int vocab, int classes) throws IOException{
+        String ns = ns(vocab);
+        out.write("@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> .\n");
+        out.write("@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n");
+        out.write("@prefix owl: <http://www.w3.org/2002/07/owl#> .\n");
+        out.write("@prefix dcterms: <http://purl.org/dc/terms/> .\n");
+        out.write("@prefix : <"+ns+"> .\n\n");
+        out.write("<"+ns+"> a owl:Ontology ;\n");
+        out.write("    dcterms:title "+turtleLiteral("Vocabulary "+vocab, language(r))+" ;\n");
+        out.write("    dcterms:description "+turtleLiteral(text(r, 10+r.nextInt(100)), language(r))+" ;\n");
+        if(r.nextInt(4) > 0){
+            out.write("    dcterms:license <"+licenses[r.nextInt(licenses.length)]+"> ;\n");
+        }
+        out.write("    dcterms:created \"20"+(10+r.nextInt(10))+"-01-01\" .\n");
+        for(int c=0; c<classes; c++){
+            out.write("\n:Class"+c+" a owl:Class ;\n");
+            if(c > 0){
+                out.write("    rdfs:subClassOf :Class"+r.nextInt(c)+" ;\n");
+            }
+            out.write("    rdfs:label "+turtleLiteral("Class "+c, language(r))+" ;\n");
+            out.write("    rdfs:comment "+turtleLiteral(text(r, 5+r.nextInt(30)), language(r))+" .\n");
+        }
+    }
+
+    private void writeRDFXML(Writer out, Random r, int vocab, int classes) throws IOException{
+        String ns = ns(vocab);
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n");
+        out.write("    xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\"\n");
+        out.write("    xmlns:owl=\"http://www.w3.org/2002/07/owl#\"\n");
+        out.write("    xmlns:dcterms=\"http://purl.org/dc/terms/\">\n");
+        out.write("  <owl:Ontology rdf:about=\""+ns+"\">\n");
+        out.write("    "+xmlLiteral("dcterms:title", "Vocabulary "+vocab, language(r))+"\n");
+        out.write("    "+xmlLiteral("dcterms:description", text(r, 10+r.nextInt(100)), language(r))+"\n");
+        if(r.nextInt(4) > 0){
+            out.write("    <dcterms:license rdf:resource=\""+licenses[r.nextInt(licenses.length)]+"\"/>\n");
+        }
+        out.write("    <dcterms:created>20"+(10+r.nextInt(10))+"-01-01</dcterms:created>\n");
+        out.write("  </owl:Ontology>\n");
+        for(int c=0; c<classes; c++){
+            out.write("  <owl:Class rdf:about=\""+ns+"Class"+c+"\">\n");
+            if(c > 0){
+                out.write("    <rdfs:subClassOf rdf:resource=\""+ns+"Class"+r.nextInt(c)+"\"/>\n");
+            }
+            out.write("    "+xmlLiteral("rdfs:label", "Class "+c, language(r))+"\n");
+            out.write("    "+xmlLiteral("rdfs:comment", text(r, 5+r.nextInt(30)), language(r))+"\n");
+            out.write("  </owl:Class>\n");
+        }
+        out.write("</rdf:RDF>\n");
+    }
+
+    //generated texts only have letters and spaces, so they do not need escaping
+    private static String turtleLiteral(String text, String lang){
+        return "\""+text+"\""+(lang == null ? "" : "@"+lang);
+    }
+
+    private static String xmlLiteral(String element, String text, String lang){
+        return "<"+element+(lang == null ? "" : " xml:lang=\""+lang+"\"")+">"+text+"</"+element+">";
+    }
+
+    /**
+     * Malformed file: the file is cut at a random position.
+     */
+    private static void truncate(File f, Random r) throws IOException{
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try{
+            raf.setLength(raf.length()/4 + (long)(r.nextDouble()*raf.length()/2));
+        }finally{
+            raf.close();
+        }
+    }
+
+    private static String text(Random r, int words){
+        StringBuilder sb = new StringBuilder();
+        for(int i=0; i<words; i++){
+            int length = 2+r.nextInt(8);
+            for(int j=0; j<length; j++){
+                sb.append((char)('a'+r.nextInt(26)));
+            }
+            sb.append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    public static void main(String[] args) throws IOException{
+        RepositoryGenerator g = new RepositoryGenerator();
+        String output = null;
+        try{
+            for(int i=0; i<args.length; i++){
+                String s = args[i];
+                if(s.equals("-o")){
+                    output = args[++i];
+                }else if(s.equals("-seed")){
+                    g.setSeed(Long.parseLong(args[++i]));
+                }else if(s.equals("-vocabs")){
+                    g.setVocabs(Integer.parseInt(args[++i]));
+                }else if(s.equals("-classes")){
+                    String[] range = args[++i].split(":");
+                    g.setClasses(Integer.parseInt(range[0]), Integer.parseInt(range[range.length-1]));
+                }else if(s.equals("-formats")){
+                    LinkedHashMap<String, Integer> formats = new LinkedHashMap<>();
+                    for(String f:args[++i].split(",")){
+                        String[] weight = f.split("=");
+                        formats.put(weight[0], weight.length > 1 ? Integer.parseInt(weight[1]) : 1);
+                    }
+                    g.setFormats(formats);
+                }else if(s.equals("-depth")){
+                    g.setDepth(Integer.parseInt(args[++i]));
+                }else if(s.equals("-langDensity")){
+                    g.setLangDensity(Double.parseDouble(args[++i]));
+                }else if(s.equals("-malformed")){
+                    g.setMalformedRatio(Double.parseDouble(args[++i]));
+                }
+            }
+        }catch(Exception e){
+            output = null;
+        }
+        if(output == null){
+            System.out.println("Usage: java -cp benchmarks.jar oeg.vocablite.RepositoryGenerator -o outputFolder "
+                    + "[-seed 42 -vocabs 1000 -classes 10:5000 -formats owl=3,ttl=3,rdf=1,xml=1,rdfs=1 -depth 3 -langDensity 0.5 -malformed 0.01]");
+            return;
+        }
+        long bytes = g.generate(new File(output));
+        System.out.println("Repository generated in "+output+" ("+(bytes/1024)+" KB)");
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that search.js splits the queries as SearchIndex.tokenize splits the
+ * texts of the index, with the rules saved in search.json. The test is
+ * skipped when node is not installed.
+ * @author dgarijo
+ */
+public class SearchTokenizerTest {
+    private static final String[] samples = {
+        "Ontología de Películas",
+        "naïve café-crème, ÅNGSTRÖM",
+        "Ελληνικό λεξιλόγιο",
+        "Словарь терминов",
+        "日本語のテキスト",
+        "हिन्दी शब्दावली",
+        "İstanbul Straße",
+        "x1 y2 ab12 ٣٤",
+        "a_b-c.d/e#fg:hi",
+        "mathematical 𝐀𝐁𝐂 letters",
+        "aVeryLongTokenWithMoreThanThirtyTwoCharactersInIt",
+        "Ⅻ ½ ²³ x²"
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSameTokensAsSearchJs() throws IOException, InterruptedException, URISyntaxException{
+        File index = folder.newFile("search.json");
+        new SearchIndex().save(index);
+        JSONObject rules = (JSONObject)((JSONObject)JSONValue.parse(
+                new String(Files.readAllBytes(index.toPath()), StandardCharsets.UTF_8))).get("tokenizer");
+        assertNotNull(rules);
+        JSONObject input = new JSONObject();
+        input.put("tokenizer", rules);
+        input.put("samples", Arrays.asList(samples));
+        File in = folder.newFile("samples.json");
+        Files.write(in.toPath(), input.toJSONString().getBytes(StandardCharsets.UTF_8));
+
+        File script = new File(SearchTokenizerTest.class.getResource("/vocab/js/search.js").toURI());
+        String js = "var s = require(process.argv[1]);"
+                + "var input = JSON.parse(require('fs').readFileSync(process.argv[2], 'utf8'));"
+                + "s.configure(input.tokenizer);"
+                + "console.log(JSON.stringify(input.samples.map(function (t) { return s.tokenize(t); })));";
+        Process p;
+        try{
+            p = new ProcessBuilder("node", "-e", js, script.getAbsolutePath(), in.getAbsolutePath())
+                    .redirectErrorStream(true).start();
+        }catch(IOException e){
+            Assume.assumeNoException(e);
+            return;
+        }
+        String output = read(p.getInputStream());
+        assertEquals(output, 0, p.waitFor());
+
+        JSONArray fromJs = (JSONArray)JSONValue.parse(output);
+        assertEquals(samples.length, fromJs.size());
+        for(int i = 0; i < samples.length; i++){
+            List<String> fromJava = new ArrayList<>();
+            SearchIndex.tokenize(samples[i], fromJava);
+            assertEquals(samples[i], fromJava, fromJs.get(i));
+        }
+    }
+
+    private static String read(InputStream in) throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while((n = in.read(buffer)) != -1){
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2012-2013 Ontology Engineering Group, Universidad Politecnica de Madrid, Spain
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package oeg.vocablite;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDF;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the batch lookup of vocabularies in LOV (VocabUtils.getLOVPages),
+ * using a local dataset instead of the LOV endpoint.
+ * @author dgarijo
+ */
+public class VocabUtilsLOVTest {
+    private static final String lovGraph = "http://lov.okfn.org/dataset/lov";
+    private static File cacheFile;
+
+    @BeforeClass
+    public static void setUp() throws IOException{
+        cacheFile = File.createTempFile("lovCache", ".json");
+        cacheFile.delete();
+        Configuration.getInstance().setLovCachePath(cacheFile.getAbsolutePath());
+        Configuration.getInstance().setOffline(false);
+    }
+
+    @AfterClass
+    public static void tearDown(){
+        cacheFile.delete();
+    }
+
+    private static Dataset createLOV(String... uriAndPrefix){
+        Dataset lov = DatasetFactory.createMem();
+        Model m = lov.getNamedModel(lovGraph);
+        for(int i=0; i<uriAndPrefix.length; i+=2){
+            Resource r = m.createResource(uriAndPrefix[i]);
+            r.addProperty(RDF.type, m.createResource("http://purl.org/vocommons/voaf#Vocabulary"));
+            r.addProperty(m.createProperty("http://purl.org/vocab/vann/preferredNamespacePrefix"), uriAndPrefix[i+1]);
+        }
+        return lov;
+    }
+
+    private static Vocabulary vocab(String uri){
+        Vocabulary v = new Vocabulary();
+        v.setUri(uri);
+        return v;
+    }
+
+    private static PersistentCache savedCache(){
+        VocabUtils.saveLOVCache();
+        return new PersistentCache(cacheFile, TextConstants.cacheTTL, TextConstants.cacheFailureTTL, TextConstants.cacheMaxEntries);
+    }
+
+    @Test
+    public void testVariants(){
+        Dataset lov = createLOV(
+                "http://example.org/variants/a", "a",
+                "http://example.org/variants/b#", "b",
+                "http://example.org/variants/c/", "c");
+        Vocabulary a = vocab("http://example.org/variants/a#");
+        Vocabulary b = vocab("http://example.org/variants/b");
+        Vocabulary c = vocab("http://example.org/variants/c");
+        Vocabulary d = vocab("http://example.org/variants/d#");
+        assertEquals(3, VocabUtils.getLOVPages(Arrays.asList(a, b, c, d), lov));
+        assertEquals("a", a.getPrefix());
+        assertEquals("http://lov.okfn.org/dataset/lov/details/vocabulary_a.html", a.getLovURI());
+        assertEquals("b", b.getPrefix());
+        assertEquals("c", c.getPrefix());
+        assertNull(d.getLovURI());
+    }
+
+    @Test
+    public void testCache(){
+        Dataset lov = createLOV("http://example.org/cache/found", "found");
+        Vocabulary found = vocab("http://example.org/cache/found");
+        Vocabulary notFound = vocab("http://example.org/cache/notFound");
+        assertEquals(1, VocabUtils.getLOVPages(Arrays.asList(found, notFound), lov));
+        PersistentCache cache = savedCache();
+        PersistentCache.Entry e = cache.get("lov http://example.org/cache/found", false);
+        assertNotNull(e);
+        assertFalse(e.isFailure());
+        assertEquals("found", e.getValue());
+        e = cache.get("lov http://example.org/cache/notFound", false);
+        assertNotNull(e);
+        assertFalse(e.isFailure());
+        assertEquals("", e.getValue());
+        //the second time the answers come from the cache
+        Vocabulary again = vocab("http://example.org/cache/found");
+        assertEquals(1, VocabUtils.getLOVPages(Arrays.asList(again, vocab("http://example.org/cache/notFound")), createLOV()));
+        assertEquals("found", again.getPrefix());
+    }
+
+    @Test
+    public void testSeveralBatches(){
+        int n = 2*TextConstants.lovBatchSize+10;
+        ArrayList<String> inLOV = new ArrayList<>();
+        List<Vocabulary> vocabs = new ArrayList<>();
+        for(int i=0; i<n; i++){
+            String uri = "http://example.org/batch/v"+i;
+            vocabs.add(vocab(uri));
+            if(i%3 == 0){
+                inLOV.add(uri);
+                inLOV.add("v"+i);
+            }
+        }
+        Dataset lov = createLOV(inLOV.toArray(new String[inLOV.size()]));
+        assertEquals(inLOV.size()/2, VocabUtils.getLOVPages(vocabs, lov));
+        for(int i=0; i<n; i++){
+            if(i%3 == 0){
+                assertEquals("v"+i, vocabs.get(i).getPrefix());
+            }else{
+                assertNull(vocabs.get(i).getLovURI());
+            }
+        }
+        PersistentCache cache = savedCache();
+        assertEquals("v"+(n-1-(n-1)%3), cache.get("lov http://example.org/batch/v"+(n-1-(n-1)%3), false).getValue());
+        assertEquals("", cache.get("lov http://example.org/batch/v"+(n-1), false).getValue());
+    }
+
+}